@@ -0,0 +1,159 @@
+package me.june.junit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 합칠 수 있는 분위수 스케치 (DDSketch 방식)
+ * 절댓값을 밑이 GAMMA 인 로그 버킷에 세므로, 어떤 분위수든 상대 오차 RELATIVE_ACCURACY 안의 값을 돌려준다.
+ * int 범위 전체가 양수 / 음수 버킷 약 1100 개씩에 들어가므로 버킷 번호의 범위가 고정이고,
+ * 스케치 두 개는 버킷끼리 더하기만 하면 합쳐진다.
+ * <p>
+ * 버킷은 스레드별 줄무늬(stripe)로 나누고, 줄무늬 안에서도 PAGE_SIZE 개씩 페이지로 나눠 처음 쓸 때 만든다.
+ * 기록은 자기 줄무늬의 버킷 하나를 원자적으로 증가시키는 것이라 스레드끼리 다투지 않고,
+ * 점수는 보통 좁은 범위에 몰리므로 실제로 만드는 페이지는 몇 개뿐이다.
+ */
+class QuantileSketch {
+
+    static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int BUCKETS = indexOf(-(long) Integer.MIN_VALUE) + 1;
+    private static final int PAGE_BITS = 6;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    // 한 부호의 페이지 수. 줄무늬마다 양수 페이지 다음에 음수 페이지를 둔다.
+    private static final int PAGES = (BUCKETS + PAGE_SIZE - 1) >>> PAGE_BITS;
+    static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    private final AtomicReferenceArray<AtomicReferenceArray<AtomicLongArray>> stripes =
+        new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder zeros = new LongAdder();
+
+    void add(int value) {
+        if (value == 0) {
+            zeros.increment();
+        } else {
+            add(value < 0, indexOf(Math.abs((long) value)), 1);
+        }
+    }
+
+    /**
+     * other 의 버킷을 호출한 스레드의 줄무늬에 더한다.
+     */
+    void merge(QuantileSketch other) {
+        long[] positives = other.counts(false);
+        long[] negatives = other.counts(true);
+        for (int i = 0; i < BUCKETS; i++) {
+            if (positives[i] != 0) {
+                add(false, i, positives[i]);
+            }
+            if (negatives[i] != 0) {
+                add(true, i, negatives[i]);
+            }
+        }
+        zeros.add(other.zeros.sum());
+    }
+
+    /**
+     * 기록된 값이 없으면 0 을 반환한다.
+     */
+    int quantile(double quantile) {
+        long[] positives = counts(false);
+        long[] negatives = counts(true);
+        long zeroCount = zeros.sum();
+        long total = zeroCount + sum(positives) + sum(negatives);
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) (Math.min(Math.max(quantile, 0), 1) * (total - 1));
+        long seen = 0;
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            seen += negatives[i];
+            if (seen > rank) {
+                return (int) -Math.round(valueOf(i));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += positives[i];
+            if (seen > rank) {
+                return (int) Math.min(Integer.MAX_VALUE, Math.round(valueOf(i)));
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 버킷 i 는 (GAMMA^(i-1), GAMMA^i] 구간이다.
+     */
+    private static int indexOf(long magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    /**
+     * 버킷 구간의 어느 값과도 상대 오차가 RELATIVE_ACCURACY 이하인 대표값
+     */
+    private static double valueOf(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private void add(boolean negative, int index, long count) {
+        AtomicReferenceArray<AtomicLongArray> pages = stripe();
+        int p = (negative ? PAGES : 0) + (index >>> PAGE_BITS);
+        AtomicLongArray page = pages.get(p);
+        if (page == null) {
+            pages.compareAndSet(p, null, new AtomicLongArray(PAGE_SIZE));
+            page = pages.get(p);
+        }
+        page.addAndGet(index & (PAGE_SIZE - 1), count);
+    }
+
+    /**
+     * 풀의 작업 스레드는 id 가 연속이므로, id 의 아래 비트로 고르면 서로 다른 줄무늬에 흩어진다.
+     */
+    private AtomicReferenceArray<AtomicLongArray> stripe() {
+        int s = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        AtomicReferenceArray<AtomicLongArray> pages = stripes.get(s);
+        if (pages == null) {
+            stripes.compareAndSet(s, null, new AtomicReferenceArray<>(2 * PAGES));
+            pages = stripes.get(s);
+        }
+        return pages;
+    }
+
+    /**
+     * 모든 줄무늬의 한 부호 버킷을 더한다. 더하는 동안 들어온 기록은 일부만 포함될 수 있다.
+     */
+    private long[] counts(boolean negative) {
+        long[] counts = new long[PAGES << PAGE_BITS];
+        int first = negative ? PAGES : 0;
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicReferenceArray<AtomicLongArray> pages = stripes.get(s);
+            if (pages == null) {
+                continue;
+            }
+            for (int p = 0; p < PAGES; p++) {
+                AtomicLongArray page = pages.get(first + p);
+                if (page == null) {
+                    continue;
+                }
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    counts[(p << PAGE_BITS) + i] += page.get(i);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static long sum(long[] counts) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+}
@@ -1,20 +1,116 @@
 package me.june.junit;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 점수를 하나씩 받아 통계만 누적하는 컬렉션
+ * Scoreable 을 보관하지 않으므로 수백만 개의 점수를 모아도 메모리가 늘지 않고,
+ * 평균 / 분산 / 최솟값 / 최댓값은 O(1) 로, 백분위는 QuantileSketch 로 근사해 구한다.
+ * 카운터는 LongAdder / LongAccumulator 라 여러 스레드가 락 없이 동시에 add() 할 수 있다.
+ * 다른 스레드가 add() 하는 중에 읽은 통계는 일부 점수만 반영되어 있을 수 있다.
+ * 개수는 다른 통계를 모두 갱신한 뒤 마지막에 더하므로, 개수가 0 이 아니면 최솟값 / 최댓값 / 분위수는 그 점수를 반영하고 있다.
+ */
 public class ScoreCollection {
 
-    private List<Scoreable> scores = new ArrayList<>();
+    private static final int LOW_BITS = 31;
+    private static final long LOW_MASK = (1L << LOW_BITS) - 1;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    // 점수 제곱(최대 2^62)을 그대로 더하면 금방 넘치므로 상위 / 하위 31 비트로 나눠 더한다.
+    private final LongAdder squaresHigh = new LongAdder();
+    private final LongAdder squaresLow = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private final QuantileSketch sketch = new QuantileSketch();
 
     public void add(Scoreable scoreable) {
-        scores.add(scoreable);
+        add(scoreable.getScore());
+    }
+
+    public void add(int score) {
+        long square = (long) score * score;
+        min.accumulate(score);
+        max.accumulate(score);
+        sketch.add(score);
+        sum.add(score);
+        squaresHigh.add(square >>> LOW_BITS);
+        squaresLow.add(square & LOW_MASK);
+        count.increment();
     }
 
+    /**
+     * other 에 누적된 점수를 모두 더한다. (스레드나 노드별로 모은 결과를 합칠 때)
+     */
+    public void merge(ScoreCollection other) {
+        min.accumulate(other.min.get());
+        max.accumulate(other.max.get());
+        sketch.merge(other.sketch);
+        sum.add(other.sum.sum());
+        squaresHigh.add(other.squaresHigh.sum());
+        squaresLow.add(other.squaresLow.sum());
+        count.add(other.count.sum());
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 합은 long 으로 누적하므로 점수가 많아도 넘치지 않는다. 점수가 없으면 ArithmeticException 이 발생한다.
+     */
     public int arithmeticMean() {
-        int total = scores.stream()
-            .mapToInt(Scoreable::getScore)
-            .sum();
-        return total / scores.size();
+        return (int) (sum.sum() / count.sum());
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? Double.NaN : (double) sum.sum() / n;
+    }
+
+    /**
+     * 모분산. (n * 제곱합 - 합^2) / n^2 의 분자를 정수로 정확히 계산하므로 상쇄 오차가 없다.
+     * 다른 스레드가 add() 하는 중에는 개수와 합이 서로 다른 시점의 값일 수 있어, 음수가 된 분자는 0 으로 자른다.
+     */
+    public double variance() {
+        long n = count.sum();
+        if (n == 0) {
+            return Double.NaN;
+        }
+        BigInteger squares = BigInteger.valueOf(squaresHigh.sum()).shiftLeft(LOW_BITS)
+            .add(BigInteger.valueOf(squaresLow.sum()));
+        BigInteger total = BigInteger.valueOf(sum.sum());
+        BigInteger numerator = squares.multiply(BigInteger.valueOf(n)).subtract(total.multiply(total));
+        return Math.max(0, numerator.doubleValue()) / ((double) n * n);
+    }
+
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    public int min() {
+        requireScores();
+        return (int) min.get();
+    }
+
+    public int max() {
+        requireScores();
+        return (int) max.get();
+    }
+
+    /**
+     * 점수의 quantile (0 ~ 1) 분위수. 상대 오차 QuantileSketch.RELATIVE_ACCURACY 안의 근삿값이다.
+     */
+    public int percentile(double quantile) {
+        requireScores();
+        return sketch.quantile(quantile);
+    }
+
+    private void requireScores() {
+        if (count.sum() == 0) {
+            throw new IllegalStateException("점수가 없습니다.");
+        }
     }
 }
@@ -2,6 +2,9 @@ package me.june.junit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 
 class ScoreCollectionTest {
@@ -24,4 +27,75 @@ class ScoreCollectionTest {
         // then
         assertEquals(6, actualResult);
     }
-}
\ No newline at end of file
+
+    @Test
+    void approximatesPercentilesOfScoresAddedConcurrently() throws InterruptedException {
+        // given
+        ScoreCollection collection = new ScoreCollection();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int score = 1; score <= 10_000; score++) {
+                    collection.add(score * 100);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // when
+        int median = collection.percentile(0.5);
+
+        // then
+        assertEquals(40_000, collection.count());
+        assertEquals(500_000, median, 500_000 * QuantileSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    void neverReportsNegativeVarianceWhileScoresAreAdded() throws InterruptedException {
+        // given
+        ScoreCollection collection = new ScoreCollection();
+        collection.add(7);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (int thread = 0; thread < 2; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1_000_000; i++) {
+                    collection.add(7);
+                }
+            });
+        }
+        executor.shutdown();
+
+        // when / then
+        for (int check = 0; check < 100_000 && !executor.isTerminated(); check++) {
+            double deviation = collection.standardDeviation();
+            assertTrue(deviation >= 0, "표준편차가 " + deviation);
+        }
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(0.0, collection.variance());
+    }
+
+    @Test
+    void neverReportsMinOrMaxOfNoScoresWhileScoresAreAdded() throws InterruptedException {
+        // given
+        ScoreCollection collection = new ScoreCollection();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (int thread = 0; thread < 2; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    collection.add(7);
+                }
+            });
+        }
+        executor.shutdown();
+
+        // when / then
+        for (int check = 0; check < 100_000 && !executor.isTerminated(); check++) {
+            if (collection.count() > 0) {
+                assertEquals(7, collection.min());
+                assertEquals(7, collection.max());
+            }
+        }
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+}
@@ -0,0 +1,162 @@
+package me.june.iloveyouboss.domain;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * 질문 id 별 true / false 응답 수를 세는 히스토그램
+ * DENSE_LIMIT 보다 작은 질문 id 는 그대로 배열 위치로 쓰고, 질문마다 long 두 칸(false, true)에 센다.
+ * 응답 하나를 셀 때 박싱, 해시, 원자적 연산이 없다.
+ * 음수이거나 그보다 큰 id 는 배열을 키우는 대신 맵에 따로 센다. (드문드문한 큰 id 하나 때문에 거대한 배열을 만들지 않도록)
+ * 큰 입력은 PARTITION_SIZE 개씩 나눠 파티션마다 따로 센 뒤 배열끼리 더해 합친다.
+ */
+public class AnswerHistogram {
+
+    static final int PARTITION_SIZE = 1 << 16;
+    static final int DENSE_LIMIT = 1 << 20;
+
+    private long[] counts;
+    private Map<Integer, long[]> sparse;
+
+    public AnswerHistogram() {
+        this(0);
+    }
+
+    AnswerHistogram(int questionCount) {
+        counts = new long[Math.multiplyExact(Math.min(questionCount, DENSE_LIMIT), 2)];
+    }
+
+    public static AnswerHistogram of(List<BooleanAnswer> answers) {
+        return IntStream.range(0, partitionCount(answers.size()))
+            .parallel()
+            .mapToObj(partition -> {
+                AnswerHistogram histogram = new AnswerHistogram();
+                int to = Math.min(answers.size(), (partition + 1) * PARTITION_SIZE);
+                for (BooleanAnswer answer : answers.subList(partition * PARTITION_SIZE, to)) {
+                    histogram.add(answer.getQuestionId(), answer.getValue());
+                }
+                return histogram;
+            })
+            .reduce(AnswerHistogram::merge)
+            .orElseGet(AnswerHistogram::new);
+    }
+
+    /**
+     * BooleanAnswer 객체 없이 질문 id 와 응답 배열로 센다. i 번째 응답은 (questionIds[i], values[i]) 다.
+     */
+    public static AnswerHistogram of(int[] questionIds, boolean[] values) {
+        if (questionIds.length != values.length) {
+            throw new IllegalArgumentException(
+                String.format("질문 id 수(%d)와 응답 수(%d)가 다릅니다.", questionIds.length, values.length));
+        }
+        return IntStream.range(0, partitionCount(questionIds.length))
+            .parallel()
+            .mapToObj(partition -> {
+                AnswerHistogram histogram = new AnswerHistogram();
+                int to = Math.min(questionIds.length, (partition + 1) * PARTITION_SIZE);
+                for (int i = partition * PARTITION_SIZE; i < to; i++) {
+                    histogram.add(questionIds[i], values[i]);
+                }
+                return histogram;
+            })
+            .reduce(AnswerHistogram::merge)
+            .orElseGet(AnswerHistogram::new);
+    }
+
+    private static int partitionCount(int size) {
+        return (size + PARTITION_SIZE - 1) / PARTITION_SIZE;
+    }
+
+    public void add(int questionId, boolean value) {
+        int slot = slotOf(questionId, value);
+        if (!isDense(questionId)) {
+            sparseCounts(questionId)[slot]++;
+            return;
+        }
+        if (slot >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.min(DENSE_LIMIT * 2, Math.max(slot + 2, counts.length * 2)));
+        }
+        counts[slot]++;
+    }
+
+    /**
+     * other 의 응답 수를 더한 this 를 반환한다.
+     */
+    public AnswerHistogram merge(AnswerHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int slot = 0; slot < other.counts.length; slot++) {
+            counts[slot] += other.counts[slot];
+        }
+        if (other.sparse != null) {
+            other.sparse.forEach((questionId, otherCounts) -> {
+                long[] sparseCounts = sparseCounts(questionId);
+                sparseCounts[0] += otherCounts[0];
+                sparseCounts[1] += otherCounts[1];
+            });
+        }
+        return this;
+    }
+
+    public long count(int questionId, boolean value) {
+        int slot = slotOf(questionId, value);
+        if (!isDense(questionId)) {
+            long[] sparseCounts = sparse == null ? null : sparse.get(questionId);
+            return sparseCounts == null ? 0 : sparseCounts[slot];
+        }
+        return slot < counts.length ? counts[slot] : 0;
+    }
+
+    /**
+     * 응답이 하나라도 있는 질문만 질문 텍스트를 키로 하는 맵으로 바꾼다.
+     * 기존 StatCompiler 와 같은 형태의 뷰이며, 질문 하나의 응답 수가 int 범위를 넘으면 ArithmeticException 이 발생한다.
+     */
+    public Map<String, Map<Boolean, AtomicInteger>> toTextView(Map<Integer, String> questions) {
+        Map<String, Map<Boolean, AtomicInteger>> textResponses = new HashMap<>();
+        for (int questionId = 0; questionId < counts.length / 2; questionId++) {
+            putText(textResponses, questions.get(questionId), count(questionId, false), count(questionId, true));
+        }
+        if (sparse != null) {
+            sparse.forEach((questionId, sparseCounts) ->
+                putText(textResponses, questions.get(questionId), sparseCounts[0], sparseCounts[1]));
+        }
+        return textResponses;
+    }
+
+    private static void putText(Map<String, Map<Boolean, AtomicInteger>> textResponses, String text,
+        long falses, long trues) {
+        if (falses + trues > 0) {
+            Map<Boolean, AtomicInteger> histogram = new HashMap<>();
+            histogram.put(Boolean.FALSE, new AtomicInteger(Math.toIntExact(falses)));
+            histogram.put(Boolean.TRUE, new AtomicInteger(Math.toIntExact(trues)));
+            textResponses.put(text, histogram);
+        }
+    }
+
+    private long[] sparseCounts(int questionId) {
+        if (sparse == null) {
+            sparse = new HashMap<>();
+        }
+        return sparse.computeIfAbsent(questionId, id -> new long[2]);
+    }
+
+    private static boolean isDense(int questionId) {
+        return questionId >= 0 && questionId < DENSE_LIMIT;
+    }
+
+    /**
+     * 배열에 세지 않는 id 는 맵의 long 두 칸에 세므로 false / true 칸 번호만 돌려준다.
+     * 배열 위치는 Math.multiplyExact 로 계산해, int 가 넘쳐 음수 위치가 되는 일이 조용히 일어나지 않게 한다.
+     */
+    private static int slotOf(int questionId, boolean value) {
+        if (!isDense(questionId)) {
+            return value ? 1 : 0;
+        }
+        return Math.multiplyExact(questionId, 2) + (value ? 1 : 0);
+    }
+}
@@ -1,6 +1,5 @@
 package me.june.iloveyouboss.domain;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -14,47 +13,13 @@ public class StatCompiler {
         List<BooleanAnswer> answers,
         Map<Integer, String> questions
     ) {
-        Map<Integer, Map<Boolean, AtomicInteger>> responses = new HashMap<>();
-        answers.forEach(answer -> incrementHistogram(responses, answer));
-        return convertHistogramIdsToText(responses, questions);
+        return histogram(answers).toTextView(questions);
     }
 
-    private Map<String, Map<Boolean, AtomicInteger>> convertHistogramIdsToText(
-        Map<Integer, Map<Boolean, AtomicInteger>> responses,
-        Map<Integer, String> questions
-    ) {
-        Map<String, Map<Boolean, AtomicInteger>> textResponses = new HashMap<>();
-        responses.keySet().stream().forEach(id ->
-            textResponses.put(questions.get(id), responses.get(id)));
-        return textResponses;
-    }
-
-    private void incrementHistogram(
-        Map<Integer, Map<Boolean, AtomicInteger>> responses,
-        BooleanAnswer answer
-    ) {
-        Map<Boolean, AtomicInteger> histogram =
-            getHistogram(responses, answer.getQuestionId());
-        histogram.get(Boolean.valueOf(answer.getValue())).getAndIncrement();
-    }
-
-    private Map<Boolean, AtomicInteger> getHistogram(
-        Map<Integer, Map<Boolean, AtomicInteger>> responses, int id) {
-        Map<Boolean, AtomicInteger> histogram = null;
-        if (responses.containsKey(id))
-            histogram = responses.get(id);
-        else {
-            histogram = createNewHistogram();
-            responses.put(id, histogram);
-        }
-        return histogram;
-    }
-
-    private Map<Boolean, AtomicInteger> createNewHistogram() {
-        Map<Boolean, AtomicInteger> histogram;
-        histogram = new HashMap<>();
-        histogram.put(Boolean.FALSE, new AtomicInteger(0));
-        histogram.put(Boolean.TRUE, new AtomicInteger(0));
-        return histogram;
+    /**
+     * 질문 텍스트로 바꾸기 전의 응답 수. 응답 수를 long 으로 그대로 읽을 수 있다.
+     */
+    public AnswerHistogram histogram(List<BooleanAnswer> answers) {
+        return AnswerHistogram.of(answers);
     }
 }
@@ -0,0 +1,76 @@
+package me.june.iloveyouboss.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ScoreCollectionTest {
+
+    @Test
+    void countsEveryScoreAddedConcurrently() throws InterruptedException {
+        ScoreCollection collection = new ScoreCollection();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    collection.add(i % 2 == 0 ? -1 : 1);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(400_000, collection.count());
+        assertEquals(1.0, collection.variance());
+        assertEquals(-1, collection.percentile(0.25));
+        assertEquals(1, collection.percentile(0.75));
+    }
+
+    @Test
+    void neverReportsNegativeVarianceWhileScoresAreAdded() throws InterruptedException {
+        ScoreCollection collection = new ScoreCollection();
+        collection.add(7);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (int thread = 0; thread < 2; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1_000_000; i++) {
+                    collection.add(7);
+                }
+            });
+        }
+        executor.shutdown();
+        for (int check = 0; check < 100_000 && !executor.isTerminated(); check++) {
+            double deviation = collection.standardDeviation();
+            assertTrue(deviation >= 0, "표준편차가 " + deviation);
+        }
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(0.0, collection.variance());
+    }
+
+    @Test
+    void neverReportsMinOrMaxOfNoScoresWhileScoresAreAdded() throws InterruptedException {
+        ScoreCollection collection = new ScoreCollection();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (int thread = 0; thread < 2; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    collection.add(7);
+                }
+            });
+        }
+        executor.shutdown();
+
+        for (int check = 0; check < 100_000 && !executor.isTerminated(); check++) {
+            if (collection.count() > 0) {
+                assertEquals(7, collection.min());
+                assertEquals(7, collection.max());
+            }
+        }
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+}
@@ -3,6 +3,7 @@ package me.june.iloveyouboss.domain;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,4 +33,79 @@ class StatCompilerTest {
         assertEquals(3, responses.get("Tuition reimbursement?").get(Boolean.TRUE).get());
     }
 
-}
\ No newline at end of file
+    @Test
+    void responsesByQuestionCountsLargeInputsAcrossPartitions() {
+        StatCompiler stats = new StatCompiler();
+        List<BooleanAnswer> answers = new ArrayList<>();
+        for (int i = 0; i < AnswerHistogram.PARTITION_SIZE * 3 + 7; i++) {
+            answers.add(new BooleanAnswer(i % 3, i % 2 == 0));
+        }
+        Map<Integer, String> questions = new HashMap<>();
+        questions.put(0, "Tuition reimbursement?");
+        questions.put(1, "Relocation package?");
+        questions.put(2, "Paid overtime?");
+
+        Map<String, Map<Boolean, AtomicInteger>> responses = stats.responsesByQuestion(answers, questions);
+
+        int total = answers.size();
+        int trues = (int) answers.stream().filter(answer -> answer.getQuestionId() == 1 && answer.getValue()).count();
+        assertEquals(trues, responses.get("Relocation package?").get(Boolean.TRUE).get());
+        assertEquals(total, responses.values().stream()
+            .flatMap(histogram -> histogram.values().stream())
+            .mapToInt(AtomicInteger::get)
+            .sum());
+    }
+
+    @Test
+    void histogramCountsPrimitiveAnswerArrays() {
+        AnswerHistogram histogram = AnswerHistogram.of(
+            new int[] { 5, 5, 5, 0 }, new boolean[] { true, false, true, false });
+
+        assertEquals(2, histogram.count(5, true));
+        assertEquals(1, histogram.count(5, false));
+        assertEquals(1, histogram.count(0, false));
+        assertEquals(0, histogram.count(42, true));
+        assertEquals(2, histogram.toTextView(Map.of(0, "Tuition reimbursement?", 5, "Relocation package?")).size());
+    }
+
+    @Test
+    void histogramCountsLargeQuestionIdsWithoutGrowingArray() {
+        int[] questionIds = new int[AnswerHistogram.PARTITION_SIZE + 2];
+        boolean[] values = new boolean[questionIds.length];
+        Arrays.fill(questionIds, 1 << 30);
+        questionIds[0] = 3;
+        questionIds[questionIds.length - 1] = Integer.MAX_VALUE;
+        values[questionIds.length - 1] = true;
+
+        AnswerHistogram histogram = AnswerHistogram.of(questionIds, values);
+
+        assertEquals(AnswerHistogram.PARTITION_SIZE, histogram.count(1 << 30, false));
+        assertEquals(0, histogram.count(1 << 30, true));
+        assertEquals(1, histogram.count(Integer.MAX_VALUE, true));
+        assertEquals(1, histogram.count(3, false));
+        assertEquals(3, histogram.toTextView(
+            Map.of(3, "Relocation package?", 1 << 30, "Tuition reimbursement?", Integer.MAX_VALUE, "Bonus?")).size());
+    }
+
+    @Test
+    void responsesByQuestionCountsNegativeQuestionIds() {
+        StatCompiler stats = new StatCompiler();
+        List<BooleanAnswer> answers = new ArrayList<>();
+        answers.add(new BooleanAnswer(-1, true));
+        answers.add(new BooleanAnswer(-1, false));
+        answers.add(new BooleanAnswer(-1, true));
+        answers.add(new BooleanAnswer(Integer.MIN_VALUE, false));
+        answers.add(new BooleanAnswer(1, true));
+        Map<Integer, String> questions = new HashMap<>();
+        questions.put(-1, "Tuition reimbursement?");
+        questions.put(Integer.MIN_VALUE, "Relocation package?");
+        questions.put(1, "Paid overtime?");
+
+        Map<String, Map<Boolean, AtomicInteger>> responses = stats.responsesByQuestion(answers, questions);
+
+        assertEquals(2, responses.get("Tuition reimbursement?").get(Boolean.TRUE).get());
+        assertEquals(1, responses.get("Tuition reimbursement?").get(Boolean.FALSE).get());
+        assertEquals(1, responses.get("Relocation package?").get(Boolean.FALSE).get());
+        assertEquals(1, responses.get("Paid overtime?").get(Boolean.TRUE).get());
+    }
+}
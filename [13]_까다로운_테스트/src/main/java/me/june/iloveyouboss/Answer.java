@@ -1,9 +1,13 @@
 package me.june.iloveyouboss;
 
+/**
+ * 질문과 선택지 번호만 가지는 불변 객체
+ * 가능하면 Question.answer(...) 로 공유되는 인스턴스를 사용한다.
+ */
 public class Answer {
 
-    private int i;
-    private Question question;
+    private final int i;
+    private final Question question;
 
     public Answer(Question question, int i) {
         this.question = question;
@@ -28,10 +32,21 @@ public class Answer {
         return question.match(expected, i);
     }
 
+    /**
+     * 같은 질문의 같은 선택지라면 BooleanQuestion(==), PercentileQuestion(<=) 모두 매칭되므로
+     * 공유 인스턴스끼리는 참조 비교만으로 답할 수 있다.
+     */
     public boolean match(Answer otherAnswer) {
+        if (this == otherAnswer) {
+            return true;
+        }
         return question.match(i, otherAnswer.i);
     }
 
+    public int getChoice() {
+        return i;
+    }
+
     public Question getCharacteristic() {
         return question;
     }
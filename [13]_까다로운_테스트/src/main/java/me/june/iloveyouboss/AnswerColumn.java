@@ -0,0 +1,106 @@
+package me.june.iloveyouboss;
+
+/**
+ * 한 세그먼트 안에서 질문 하나에 대한 답변을 비트 단위로 저장하는 컬럼
+ * 선택지 번호를 width 개의 비트 평면(bit-plane)으로 나누어 저장하고, 답변 여부는 answered 비트맵으로 관리한다.
+ * - BooleanQuestion : 프로필당 1 비트
+ * - PercentileQuestion : 프로필당 ceil(log2(선택지 수)) 비트
+ * 같은 비트 위치끼리 모여 있으므로 long 하나로 64 개 프로필을 한 번에 비교할 수 있다.
+ * 선택지별 답변 수(counts)도 함께 유지해, 아무도 고르지 않은 선택지를 요구하는 세그먼트는 통째로 건너뛸 수 있다.
+ */
+class AnswerColumn implements ColumnView {
+
+    private final int width;
+    private final long[] answered;
+    private final long[][] planes;
+    private final int[] counts;
+
+    AnswerColumn(int choiceCount) {
+        this(widthOf(choiceCount), new int[choiceCount],
+            new long[Segment.WORDS], new long[widthOf(choiceCount)][Segment.WORDS]);
+    }
+
+    AnswerColumn(int width, int[] counts, long[] answered, long[][] planes) {
+        this.width = width;
+        this.counts = counts;
+        this.answered = answered;
+        this.planes = planes;
+    }
+
+    static int widthOf(int choiceCount) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(choiceCount - 1));
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    /**
+     * choice 가 선택지 범위를 벗어나면 컬럼을 건드리지 않고 IllegalArgumentException 을 던진다.
+     */
+    void set(int offset, int choice) {
+        if (choice < 0 || choice >= counts.length) {
+            throw new IllegalArgumentException(
+                String.format("선택지 번호는 0 이상 %d 미만이어야 합니다: %d", counts.length, choice));
+        }
+        clear(offset);
+        counts[choice]++;
+        int word = offset >>> 6;
+        long bit = 1L << offset;
+        answered[word] |= bit;
+        for (int b = 0; b < width; b++) {
+            if ((choice & (1 << b)) != 0) {
+                planes[b][word] |= bit;
+            } else {
+                planes[b][word] &= ~bit;
+            }
+        }
+    }
+
+    void clear(int offset) {
+        int previous = get(offset);
+        if (previous == ChoiceLookup.UNANSWERED) {
+            return;
+        }
+        counts[previous]--;
+        int word = offset >>> 6;
+        long bit = 1L << offset;
+        answered[word] &= ~bit;
+        for (int b = 0; b < width; b++) {
+            planes[b][word] &= ~bit;
+        }
+    }
+
+    /**
+     * 발행된 세그먼트와 공유하던 컬럼을 고치기 전에 만드는 힙 복사본
+     */
+    @Override
+    public AnswerColumn mutableCopy() {
+        long[][] planesCopy = new long[width][];
+        for (int b = 0; b < width; b++) {
+            planesCopy[b] = planes[b].clone();
+        }
+        return new AnswerColumn(width, counts.clone(), answered.clone(), planesCopy);
+    }
+
+    @Override
+    public int count(int choice) {
+        return counts[choice];
+    }
+
+    @Override
+    public int choiceCount() {
+        return counts.length;
+    }
+
+    @Override
+    public long answeredWord(int word) {
+        return answered[word];
+    }
+
+    @Override
+    public long planeWord(int b, int word) {
+        return planes[b][word];
+    }
+}
@@ -0,0 +1,139 @@
+package me.june.iloveyouboss;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 작업마다 스레드를 하나씩 만들고, 동시에 실행되는 작업 수를 세마포어로 제한하는 실행기
+ * 스레드는 작업이 끝나면 사라지므로, I/O 로 블로킹되는 작업이 다른 작업이 쓸 스레드를 붙잡지 않는다.
+ * 허가를 얻을 때까지 제출한 스레드가 기다리므로, 작업 큐가 가득 찬 스레드풀과 같은 역압이 걸린다.
+ */
+final class BoundedThreadPerTaskExecutor extends AbstractExecutorService {
+
+    private final ThreadFactory threads;
+    private final Semaphore permits;
+    private final Set<Thread> live = ConcurrentHashMap.newKeySet();
+    private final Object lock = new Object();
+    private int running;
+    private boolean shutdown;
+
+    BoundedThreadPerTaskExecutor(ThreadFactory threads, int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("동시 실행 수는 1 이상이어야 합니다: " + concurrency);
+        }
+        this.threads = threads;
+        this.permits = new Semaphore(concurrency);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("작업을 제출하는 중 인터럽트 되었습니다.", e);
+        }
+        synchronized (lock) {
+            if (shutdown) {
+                permits.release();
+                throw new RejectedExecutionException("닫힌 실행기에 작업을 제출했습니다.");
+            }
+            running++;
+        }
+        try {
+            Thread thread = threads.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    live.remove(Thread.currentThread());
+                    finished();
+                }
+            });
+            if (thread == null) {
+                throw new RejectedExecutionException("스레드를 만들지 못했습니다.");
+            }
+            live.add(thread);
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            finished();
+            throw e;
+        }
+    }
+
+    private void finished() {
+        permits.release();
+        synchronized (lock) {
+            running--;
+            if (running == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 허가를 기다리는 제출 스레드 수
+     */
+    int queueDepth() {
+        return permits.getQueueLength();
+    }
+
+    int activeCount() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 실행 중인 작업을 인터럽트한다. 기다리는 작업 큐가 없으므로 돌려줄 작업은 없다.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        live.forEach(Thread::interrupt);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return shutdown;
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        synchronized (lock) {
+            return shutdown && running == 0;
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (!(shutdown && running == 0)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+}
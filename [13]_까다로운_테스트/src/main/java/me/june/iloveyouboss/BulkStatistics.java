@@ -0,0 +1,152 @@
+package me.june.iloveyouboss;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * int[] / double[] 전체에 대한 산술 / 기하 / 조화 평균
+ * 원소를 곱하거나 그냥 더하는 대신 Neumaier 보정 합으로 누적하므로, 원소가 수억 개여도 반올림 오차가 쌓이지 않는다.
+ * 기하 평균은 곱 대신 log 의 보정 합으로, 조화 평균은 역수의 보정 합으로 계산한다.
+ * 원소가 PARALLEL_THRESHOLD 개를 넘으면 범위를 나눠 ForkJoinPool 에서 부분 합을 구한 뒤 보정 합끼리 합친다.
+ * 빈 배열의 평균은 NaN 이다.
+ */
+public final class BulkStatistics {
+
+    static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    private BulkStatistics() {
+    }
+
+    public static double arithmeticMean(int[] numbers) {
+        return mean(sum(numbers, null, Term.VALUE), numbers.length);
+    }
+
+    public static double arithmeticMean(double[] numbers) {
+        return mean(sum(null, numbers, Term.VALUE), numbers.length);
+    }
+
+    /**
+     * 0 이 있으면 0, 음수가 있으면 NaN 이다.
+     */
+    public static double geometricMean(int[] numbers) {
+        return Math.exp(mean(sum(numbers, null, Term.LOG), numbers.length));
+    }
+
+    public static double geometricMean(double[] numbers) {
+        return Math.exp(mean(sum(null, numbers, Term.LOG), numbers.length));
+    }
+
+    /**
+     * 0 이 있으면 0 이다.
+     */
+    public static double harmonicMean(int[] numbers) {
+        return numbers.length / sum(numbers, null, Term.RECIPROCAL);
+    }
+
+    public static double harmonicMean(double[] numbers) {
+        return numbers.length / sum(null, numbers, Term.RECIPROCAL);
+    }
+
+    private static double mean(double sum, int count) {
+        return sum / count;
+    }
+
+    private static double sum(int[] ints, double[] doubles, Term term) {
+        int length = ints != null ? ints.length : doubles.length;
+        SumTask task = new SumTask(ints, doubles, term, 0, length);
+        CompensatedSum sum = length <= PARALLEL_THRESHOLD ? task.compute() : ForkJoinPool.commonPool().invoke(task);
+        return sum.value();
+    }
+
+    private enum Term {
+        VALUE, LOG, RECIPROCAL;
+
+        double of(double x) {
+            switch (this) {
+                case LOG:
+                    return Math.log(x);
+                case RECIPROCAL:
+                    return 1 / x;
+                default:
+                    return x;
+            }
+        }
+    }
+
+    /**
+     * [from, to) 범위의 항을 보정 합으로 더한다. 범위가 크면 반으로 나눠 한쪽을 fork 한다.
+     */
+    private static final class SumTask extends RecursiveTask<CompensatedSum> {
+
+        private final int[] ints;
+        private final double[] doubles;
+        private final Term term;
+        private final int from;
+        private final int to;
+
+        SumTask(int[] ints, double[] doubles, Term term, int from, int to) {
+            this.ints = ints;
+            this.doubles = doubles;
+            this.term = term;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CompensatedSum compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return sumRange();
+            }
+            int middle = (from + to) >>> 1;
+            SumTask left = new SumTask(ints, doubles, term, from, middle);
+            left.fork();
+            CompensatedSum right = new SumTask(ints, doubles, term, middle, to).compute();
+            return left.join().add(right);
+        }
+
+        private CompensatedSum sumRange() {
+            CompensatedSum sum = new CompensatedSum();
+            if (ints != null) {
+                for (int i = from; i < to; i++) {
+                    sum.add(term.of(ints[i]));
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    sum.add(term.of(doubles[i]));
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Neumaier 보정 합: 더할 때 잃어버린 하위 자릿수를 compensation 에 따로 모은다.
+     */
+    static final class CompensatedSum {
+
+        private double sum;
+        private double compensation;
+
+        CompensatedSum add(double x) {
+            double t = sum + x;
+            if (Math.abs(sum) >= Math.abs(x)) {
+                compensation += (sum - t) + x;
+            } else {
+                compensation += (x - t) + sum;
+            }
+            sum = t;
+            return this;
+        }
+
+        CompensatedSum add(CompensatedSum other) {
+            return add(other.sum).add(other.compensation);
+        }
+
+        /**
+         * 합이 무한대나 NaN 이 되면 보정값은 의미가 없으므로 합을 그대로 반환한다.
+         */
+        double value() {
+            return Double.isFinite(sum) ? sum + compensation : sum;
+        }
+    }
+}
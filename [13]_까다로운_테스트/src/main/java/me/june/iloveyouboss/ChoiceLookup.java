@@ -0,0 +1,13 @@
+package me.june.iloveyouboss;
+
+/**
+ * 질문 id 로 답변의 선택지 번호를 조회한다.
+ * 답변하지 않은 질문이라면 UNANSWERED 를 반환한다.
+ */
+@FunctionalInterface
+public interface ChoiceLookup {
+
+    int UNANSWERED = -1;
+
+    int choiceOf(int questionId);
+}
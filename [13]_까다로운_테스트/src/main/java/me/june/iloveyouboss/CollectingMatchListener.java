@@ -0,0 +1,130 @@
+package me.june.iloveyouboss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 매칭 결과를 모으는 스레드 안전한 MatchListener
+ * ProfileMatcher 가 청크마다 forChunk() 로 청크 전용 버퍼를 받아 가므로, 작업 스레드는 자기 청크의 버퍼에만 덧붙이고
+ * 매칭을 기록할 때 락을 잡거나 다른 스레드와 같은 메모리를 다투지 않는다.
+ * 버퍼는 처음 매칭이 들어올 때 한 번만 목록에 등록되고, 끝난 청크의 버퍼는 모두 흘려보낸 뒤 목록에서 빠진다.
+ * 청크 밖에서 foundMatch 를 직접 호출하면 (상시 질의 등) 공유 버퍼에 락을 잡고 덧붙인다.
+ * - snapshot() : 아직 흘려보내지 않은 매칭을 모든 버퍼에서 모아 점수 내림차순으로 반환
+ * - drainTo() : 질의가 진행 중일 때도 지난번 이후 새로 모인 매칭만 흘려보낸다. 흘려보낸 매칭은 더 붙잡지 않는다
+ */
+public class CollectingMatchListener implements MatchListener {
+
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final Object sharedLock = new Object();
+    private Buffer shared = new Buffer(buffers);
+
+    @Override
+    public void foundMatch(Profile profile, MatchSet matchSet) {
+        synchronized (sharedLock) {
+            shared.foundMatch(profile, matchSet);
+        }
+    }
+
+    @Override
+    public MatchListener forChunk() {
+        return new Buffer(buffers);
+    }
+
+    @Override
+    public void chunkFinished(MatchListener chunkListener) {
+        if (chunkListener instanceof Buffer) {
+            ((Buffer) chunkListener).finished = true;
+        }
+    }
+
+    /**
+     * 버퍼 수에 비례하는 시간이 걸린다. (매칭 수와는 상관없다)
+     */
+    public int size() {
+        int size = 0;
+        for (Buffer buffer : buffers) {
+            size += buffer.size - buffer.drained;
+        }
+        return size;
+    }
+
+    public List<MatchSet> snapshot() {
+        List<MatchSet> matches = new ArrayList<>();
+        for (Buffer buffer : buffers) {
+            int drained = buffer.drained;
+            int size = buffer.size;
+            matches.addAll(Arrays.asList(buffer.elements).subList(drained, size));
+        }
+        matches.sort(TopMatches.BY_SCORE.reversed());
+        return matches;
+    }
+
+    /**
+     * 여러 스레드가 동시에 흘려보내면 같은 매칭을 두 번 넘길 수 있으므로, 흘려보내는 쪽끼리만 동기화한다.
+     * 기록하는 스레드는 이 락과 상관없이 계속 덧붙인다.
+     */
+    public synchronized int drainTo(Consumer<MatchSet> consumer) {
+        int drained = 0;
+        for (Iterator<Buffer> it = buffers.iterator(); it.hasNext(); ) {
+            Buffer buffer = it.next();
+            // finished 를 먼저 읽어야, 끝난 버퍼의 size 가 마지막 값임을 믿을 수 있다.
+            boolean finished = buffer.finished;
+            int size = buffer.size;
+            MatchSet[] elements = buffer.elements;
+            for (int i = buffer.drained; i < size; i++) {
+                consumer.accept(elements[i]);
+            }
+            drained += size - buffer.drained;
+            buffer.drained = size;
+            if (finished) {
+                it.remove();
+            }
+        }
+        // 공유 버퍼는 끝나지 않으므로, 모두 흘려보냈으면 새 버퍼로 바꿔 흘려보낸 매칭을 놓아준다.
+        synchronized (sharedLock) {
+            if (shared.size > 0 && shared.drained == shared.size) {
+                buffers.remove(shared);
+                shared = new Buffer(buffers);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 한 스레드만 쓰고 여러 스레드가 읽는 덧붙이기 전용 버퍼
+     * 쓰는 쪽은 배열을 먼저 공개한 뒤 size 를 늘리므로, size 를 먼저 읽은 쪽은 그만큼의 원소를 항상 볼 수 있다.
+     */
+    private static class Buffer implements MatchListener {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final Queue<Buffer> buffers;
+        private volatile MatchSet[] elements = new MatchSet[INITIAL_CAPACITY];
+        private volatile int size;
+        private volatile int drained;
+        private volatile boolean finished;
+
+        Buffer(Queue<Buffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void foundMatch(Profile profile, MatchSet matchSet) {
+            MatchSet[] current = elements;
+            if (size == 0) {
+                buffers.add(this);
+            }
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                elements = current;
+            }
+            current[size] = matchSet;
+            size = size + 1;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package me.june.iloveyouboss;
+
+/**
+ * 한 세그먼트 안에서 질문 하나에 대한 답변 컬럼을 읽기만 하는 쪽의 인터페이스
+ * 힙에 있는 AnswerColumn 과 스냅샷 파일에 매핑된 MappedAnswerColumn 이 구현한다.
+ * 값을 바꿔야 할 때는 mutableCopy() 로 힙 복사본을 만들어 세그먼트의 컬럼을 교체한다. (copy-on-write)
+ */
+interface ColumnView {
+
+    int width();
+
+    int choiceCount();
+
+    int count(int choice);
+
+    long answeredWord(int word);
+
+    long planeWord(int b, int word);
+
+    AnswerColumn mutableCopy();
+
+    default int get(int offset) {
+        int word = offset >>> 6;
+        long bit = 1L << offset;
+        if ((answeredWord(word) & bit) == 0) {
+            return ChoiceLookup.UNANSWERED;
+        }
+        int choice = 0;
+        for (int b = 0; b < width(); b++) {
+            if ((planeWord(b, word) & bit) != 0) {
+                choice |= 1 << b;
+            }
+        }
+        return choice;
+    }
+
+    /**
+     * word 에 속한 64 개 프로필 중, 선택지가 choice 인 프로필의 비트마스크
+     */
+    default long equalsMask(int word, int choice) {
+        long mask = answeredWord(word);
+        for (int b = 0; b < width(); b++) {
+            long plane = planeWord(b, word);
+            mask &= (choice & (1 << b)) != 0 ? plane : ~plane;
+        }
+        return mask;
+    }
+}
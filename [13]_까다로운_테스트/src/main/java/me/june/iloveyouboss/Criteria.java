@@ -1,7 +1,6 @@
 package me.june.iloveyouboss;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -16,17 +15,33 @@ public class Criteria implements Iterable<Criterion> {
         criteria.add(criterion);
     }
 
+    /**
+     * 조건의 순서와 상관없는 지문. 같은 조건 묶음으로 반복되는 질의를 캐시할 때 키로 쓴다.
+     */
+    public CriteriaFingerprint fingerprint() {
+        return CriteriaFingerprint.of(this);
+    }
+
     @Override
     public Iterator<Criterion> iterator() {
         return criteria.iterator();
     }
 
+    /**
+     * 조건 가중치의 산술 평균. 조건이 없으면 0 이다.
+     */
     public int arithmeticMean() {
-        return 0;
+        if (criteria.isEmpty()) {
+            return 0;
+        }
+        int[] weights = criteria.stream().mapToInt(criterion -> criterion.getWeight().getValue()).toArray();
+        return (int) BulkStatistics.arithmeticMean(weights);
     }
 
+    /**
+     * 원소를 int 로 곱하면 몇 개만으로도 넘치므로, log 합으로 계산한다.
+     */
     public double geometricMean(int[] numbers) {
-        int totalProduct = Arrays.stream(numbers).reduce(1, (product, number) -> product * number);
-        return Math.pow(totalProduct, 1.0 / numbers.length);
+        return BulkStatistics.geometricMean(numbers);
     }
 }
@@ -0,0 +1,66 @@
+package me.june.iloveyouboss;
+
+import java.util.Arrays;
+
+/**
+ * Criteria 의 정규화된 지문
+ * Criterion 마다 (질문 id, 조건의 선택지, Weight) 를 long 하나로 만들고 정렬해 두므로,
+ * 조건을 추가한 순서와 상관없이 같은 조건 묶음이면 같은 지문이 나온다.
+ * 해시가 아닌 값 전체를 비교하므로 서로 다른 Criteria 가 같은 지문으로 충돌하지 않는다.
+ */
+public final class CriteriaFingerprint {
+
+    private final long[] terms;
+    private final int hash;
+
+    private CriteriaFingerprint(long[] terms) {
+        this.terms = terms;
+        this.hash = Arrays.hashCode(terms);
+    }
+
+    public static CriteriaFingerprint of(Criteria criteria) {
+        long[] terms = new long[0];
+        int size = 0;
+        for (Criterion criterion : criteria) {
+            if (size == terms.length) {
+                terms = Arrays.copyOf(terms, Math.max(4, size * 2));
+            }
+            terms[size++] = termOf(criterion);
+        }
+        terms = Arrays.copyOf(terms, size);
+        Arrays.sort(terms);
+        return new CriteriaFingerprint(terms);
+    }
+
+    /**
+     * 상위 32 비트는 질문 id, 그 아래 24 비트는 선택지 + 1 (없는 선택지는 0), 마지막 8 비트는 Weight 순서
+     */
+    static long termOf(Criterion criterion) {
+        Answer answer = criterion.getAnswer();
+        long questionId = answer.getCharacteristic().getId();
+        long choice = answer.getChoice() + 1;
+        return questionId << 32 | (choice & 0xFFFFFF) << 8 | criterion.getWeight().ordinal();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CriteriaFingerprint)) {
+            return false;
+        }
+        CriteriaFingerprint other = (CriteriaFingerprint) o;
+        return hash == other.hash && Arrays.equals(terms, other.terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CriteriaFingerprint(%08x, %d terms)", hash, terms.length);
+    }
+}
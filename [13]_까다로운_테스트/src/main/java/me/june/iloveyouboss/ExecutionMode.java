@@ -0,0 +1,93 @@
+package me.june.iloveyouboss;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ProfileMatcher 가 청크를 평가하고 MatchListener 를 호출할 때 사용할 실행 방식
+ */
+public enum ExecutionMode {
+
+    /**
+     * concurrency 개의 플랫폼 스레드와 크기가 제한된 작업 큐
+     * 큐가 가득 차면 제출한 스레드가 직접 청크를 처리한다. 풀이 닫힌 뒤의 제출은 RejectedExecutionException 으로 거절한다.
+     */
+    PLATFORM_POOL {
+        @Override
+        ExecutorService newExecutor(int concurrency) {
+            return new ThreadPoolExecutor(
+                concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(concurrency * QUEUE_CAPACITY_PER_THREAD),
+                daemonThreads("profile-matcher-"),
+                CALLER_RUNS_UNLESS_SHUTDOWN);
+        }
+    },
+
+    /**
+     * 청크마다 가상 스레드를 하나씩 띄우고, 동시에 실행되는 청크는 concurrency 개로 제한한다.
+     * MatchListener 가 I/O 로 블로킹되어도 캐리어 스레드를 붙잡지 않으므로, 풀 크기를 배포마다 맞추지 않아도 된다.
+     * 이 모듈은 JDK 17 로 컴파일하므로 가상 스레드 빌더는 실행 시점에 찾는다.
+     * 가상 스레드가 없는 JDK 에서는 청크마다 데몬 플랫폼 스레드를 만들며, 동시 실행 수의 제한은 같다.
+     */
+    VIRTUAL_THREADS {
+        @Override
+        ExecutorService newExecutor(int concurrency) {
+            return new BoundedThreadPerTaskExecutor(virtualThreads("profile-matcher-virtual-"), concurrency);
+        }
+    },
+
+    /**
+     * 세그먼트 범위를 재귀적으로 나누어 ForkJoinPool 에서 평가하고, 결과를 profile id 순으로 병합한다.
+     * MatchListener 는 질의를 호출한 스레드에서 profile id 순서대로 호출되므로, 실행할 때마다 결과가 같다.
+     */
+    FORK_JOIN {
+        @Override
+        ExecutorService newExecutor(int concurrency) {
+            return new ForkJoinPool(concurrency);
+        }
+    };
+
+    private static final int QUEUE_CAPACITY_PER_THREAD = 4;
+
+    /**
+     * CallerRunsPolicy 는 풀이 닫힌 뒤의 작업을 조용히 버리므로, 그 작업의 Future 를 기다리는 질의가 영원히 멈춘다.
+     */
+    private static final RejectedExecutionHandler CALLER_RUNS_UNLESS_SHUTDOWN = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("닫힌 실행기에 작업을 제출했습니다.");
+        }
+        task.run();
+    };
+
+    abstract ExecutorService newExecutor(int concurrency);
+
+    /**
+     * Thread.ofVirtual().name(prefix, 1).factory() 를 호출한다. (JDK 21 이상)
+     */
+    private static ThreadFactory virtualThreads(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return daemonThreads(prefix);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package me.june.iloveyouboss;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 여러 스레드가 락 없이 기록하는 지연 시간 히스토그램 (HdrHistogram 과 같은 로그-선형 버킷)
+ * 2 의 거듭제곱 구간마다 64 개 버킷으로 나누므로, 어떤 값이든 상대 오차 1/64 안에서 구간을 찾는다.
+ * 버킷 배열은 스레드별 줄무늬(stripe)로 나누어, 작업 스레드마다 자기 줄무늬의 버킷만 증가시킨다.
+ * 같은 줄무늬를 쓰는 스레드끼리만 캐시 라인을 다투며, 줄무늬는 처음 기록할 때 만든다.
+ * 스냅샷을 만들 때 모든 줄무늬를 더한다.
+ */
+class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS >>> 1;
+    static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * HALF;
+    static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder totalNanos = new LongAdder();
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        stripe().incrementAndGet(indexOf(value));
+        totalNanos.add(value);
+    }
+
+    /**
+     * 지금까지의 기록을 복사한다. 복사하는 동안 들어온 기록은 일부만 포함될 수 있다.
+     */
+    LatencySnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray counts = stripes.get(s);
+            if (counts == null) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] += counts.get(i);
+            }
+        }
+        return new LatencySnapshot(copy, totalNanos.sum());
+    }
+
+    /**
+     * 풀의 작업 스레드는 id 가 연속이므로, id 의 아래 비트로 고르면 서로 다른 줄무늬에 흩어진다.
+     */
+    private AtomicLongArray stripe() {
+        int s = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        AtomicLongArray counts = stripes.get(s);
+        if (counts == null) {
+            stripes.compareAndSet(s, null, new AtomicLongArray(BUCKETS));
+            counts = stripes.get(s);
+        }
+        return counts;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF + (subBucket - HALF);
+    }
+
+    /**
+     * 버킷에 속하는 가장 큰 값
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long subBucket = (index - SUB_BUCKETS) % HALF + HALF;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,86 @@
+package me.june.iloveyouboss;
+
+/**
+ * LatencyRecorder 의 한 시점 복사본. 값의 단위는 나노초다.
+ * 누적된 기록이므로, 특정 구간의 분포는 minus() 로 이전 스냅샷을 빼서 구한다.
+ * 백분위 값은 그 값이 속한 버킷의 상한이다.
+ */
+public final class LatencySnapshot {
+
+    private final long[] counts;
+    private final long totalNanos;
+    private final long count;
+
+    LatencySnapshot(long[] counts, long totalNanos) {
+        this.counts = counts;
+        this.totalNanos = totalNanos;
+        long sum = 0;
+        for (long c : counts) {
+            sum += c;
+        }
+        this.count = sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    public long getP50() {
+        return valueAtPercentile(50);
+    }
+
+    public long getP90() {
+        return valueAtPercentile(90);
+    }
+
+    public long getP99() {
+        return valueAtPercentile(99);
+    }
+
+    public long getP999() {
+        return valueAtPercentile(99.9);
+    }
+
+    public long getMax() {
+        return valueAtPercentile(100);
+    }
+
+    /**
+     * 기록의 percentile % 가 이 값 이하다. 기록이 없으면 0 이다.
+     */
+    public long valueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return LatencyRecorder.highestValueOf(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * previous 이후에 기록된 값만의 분포
+     */
+    public LatencySnapshot minus(LatencySnapshot previous) {
+        long[] interval = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            interval[i] = Math.max(0, counts[i] - previous.counts[i]);
+        }
+        return new LatencySnapshot(interval, totalNanos - previous.totalNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.0fns p50=%dns p99=%dns p99.9=%dns max=%dns",
+            count, getMean(), getP50(), getP99(), getP999(), getMax());
+    }
+}
@@ -0,0 +1,66 @@
+package me.june.iloveyouboss;
+
+import java.nio.LongBuffer;
+
+/**
+ * ProfileSnapshot 파일에 매핑된 읽기 전용 컬럼
+ * 비트 평면을 힙으로 복사하지 않고 매핑된 버퍼에서 바로 읽으므로, 실제로 읽는 페이지만 메모리에 올라온다.
+ * 값을 바꿔야 할 때는 mutableCopy() 로 힙 복사본을 만들어 세그먼트의 컬럼을 교체한다. (copy-on-write)
+ */
+class MappedAnswerColumn implements ColumnView {
+
+    private final int width;
+    private final int[] counts;
+    private final LongBuffer data;
+    private final int base;
+
+    /**
+     * data[base] 부터 answered 비트맵, 0 번 ~ width - 1 번 비트 평면이 Segment.WORDS 개씩 차례로 놓여 있다.
+     */
+    MappedAnswerColumn(int[] counts, LongBuffer data, int base) {
+        this.width = AnswerColumn.widthOf(counts.length);
+        this.counts = counts;
+        this.data = data;
+        this.base = base;
+    }
+
+    static int wordsOf(int choiceCount) {
+        return (1 + AnswerColumn.widthOf(choiceCount)) * Segment.WORDS;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int choiceCount() {
+        return counts.length;
+    }
+
+    @Override
+    public int count(int choice) {
+        return counts[choice];
+    }
+
+    @Override
+    public long answeredWord(int word) {
+        return data.get(base + word);
+    }
+
+    @Override
+    public long planeWord(int b, int word) {
+        return data.get(base + (b + 1) * Segment.WORDS + word);
+    }
+
+    @Override
+    public AnswerColumn mutableCopy() {
+        long[] answered = new long[Segment.WORDS];
+        long[][] planes = new long[width][Segment.WORDS];
+        data.get(base, answered);
+        for (int b = 0; b < width; b++) {
+            data.get(base + (b + 1) * Segment.WORDS, planes[b]);
+        }
+        return new AnswerColumn(width, counts.clone(), answered, planes);
+    }
+}
@@ -0,0 +1,124 @@
+package me.june.iloveyouboss;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CriteriaFingerprint 별로 findMatches 결과를 보관하는 LRU 캐시
+ * 담고 있는 MatchSet 의 총 개수(결과마다 1 을 더한 값)가 capacity 를 넘으면 가장 오래 쓰지 않은 결과부터 버린다.
+ * 결과는 계산에 사용한 StoreVersion 과 세그먼트를 함께 기억한다.
+ * 발행된 세그먼트는 바뀌지 않으므로, 같은 세그먼트 객체라면 그 세그먼트의 결과를 그대로 다시 쓸 수 있다.
+ * 결과가 기억하는 버전은 프로필 id 표와 모든 세그먼트를 붙잡으므로, 캐시가 붙잡는 버전은 RETAINED_VERSIONS 개로 제한한다.
+ * 그보다 많은 버전의 결과가 들어오면 가장 먼저 들어온 버전의 결과를 모두 버린다.
+ */
+class MatchCache {
+
+    /**
+     * 최신 버전과 그 직전 버전. 직전 버전의 결과는 바뀌지 않은 세그먼트를 다시 쓰는 데 필요하다.
+     */
+    static final int RETAINED_VERSIONS = 2;
+
+    private final long capacity;
+    private final LinkedHashMap<CriteriaFingerprint, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<StoreVersion, Integer> versions = new LinkedHashMap<>();
+    private long weight;
+
+    MatchCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized Entry get(CriteriaFingerprint key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(CriteriaFingerprint key, Entry entry) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            removed(previous);
+        }
+        if (entry.weight() > capacity) {
+            return;
+        }
+        entries.put(key, entry);
+        weight += entry.weight();
+        versions.merge(entry.version, 1, Integer::sum);
+        Iterator<Map.Entry<CriteriaFingerprint, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > capacity && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            removed(evicted);
+        }
+        while (versions.size() > RETAINED_VERSIONS) {
+            StoreVersion superseded = versions.keySet().iterator().next();
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry evicted = it.next();
+                if (evicted.version == superseded) {
+                    it.remove();
+                    removed(evicted);
+                }
+            }
+        }
+    }
+
+    private void removed(Entry entry) {
+        weight -= entry.weight();
+        versions.computeIfPresent(entry.version, (version, count) -> count == 1 ? null : count - 1);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 결과가 붙잡고 있는 버전 수
+     */
+    synchronized int retainedVersions() {
+        return versions.size();
+    }
+
+    static final class Entry {
+
+        private final StoreVersion version;
+        private final Segment[] segments;
+        private final List<List<MatchSet>> bySegment;
+        private final List<MatchSet> matches;
+
+        Entry(StoreVersion version, List<List<MatchSet>> bySegment, List<MatchSet> matches) {
+            this.version = version;
+            this.segments = new Segment[version.segmentCount()];
+            for (int s = 0; s < segments.length; s++) {
+                segments[s] = version.segment(s);
+            }
+            this.bySegment = bySegment;
+            this.matches = matches;
+        }
+
+        boolean isFor(StoreVersion store) {
+            return version == store;
+        }
+
+        /**
+         * store 의 segment 번 세그먼트가 이 결과를 계산할 때와 같은 객체라면 true
+         */
+        boolean covers(StoreVersion store, int segment) {
+            return segment < segments.length && segments[segment] == store.segment(segment);
+        }
+
+        List<MatchSet> segmentMatches(int segment) {
+            return bySegment.get(segment);
+        }
+
+        List<MatchSet> matches() {
+            return matches;
+        }
+
+        /**
+         * 빈 결과도 한 칸을 차지하게 해, 매칭이 없는 질의가 끝없이 쌓이지 않도록 한다.
+         */
+        long weight() {
+            return matches.size() + 1L;
+        }
+    }
+}
@@ -2,4 +2,16 @@ package me.june.iloveyouboss;
 
 public interface MatchListener {
     void foundMatch(Profile profile, MatchSet matchSet);
+
+    /**
+     * ProfileMatcher 는 청크(세그먼트) 하나를 처리할 때마다 이 메서드로 그 청크 전용 listener 를 받아
+     * 청크 안의 매칭을 모두 그 listener 로 전달하고, 청크가 끝나면 chunkFinished 로 돌려준다.
+     * 청크 전용 listener 는 청크를 처리하는 스레드 하나만 호출한다. 기본 구현은 자기 자신을 돌려주며, null 도 자기 자신으로 본다.
+     */
+    default MatchListener forChunk() {
+        return this;
+    }
+
+    default void chunkFinished(MatchListener chunkListener) {
+    }
 }
@@ -0,0 +1,375 @@
+package me.june.iloveyouboss;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Criteria 를 한 번 컴파일해 둔 불변 평가 계획
+ * 매 프로필마다 질문 텍스트로 HashMap 을 조회하는 대신, 질문 id 를 슬롯으로 사용해 배열 인덱스로만 답변을 찾는다.
+ * 각 Criterion 은 "프로필의 선택지 -> 매칭 여부" 진리표와 가중치로 변환된다.
+ * MustMatch 조건은 MustMatchOrder 가 관찰한 선택도 순서로 검사한다.
+ * 통계는 compile(criteria, orders) 로 넘긴 MustMatchOrders 안에서 같은 지문의 계획끼리 공유하고,
+ * compile(criteria) 로 만든 계획은 자기 통계만 쌓는다.
+ * 바뀌는 것은 검사 순서뿐이고 매칭 여부, 점수, 실패 원인은 같으므로, 여러 스레드가 공유해도 안전하다.
+ */
+public final class MatchPlan {
+
+    private final Criterion[] criteria;
+    private final int[] slots;
+    private final boolean[][] truthTables;
+    private final int[] weights;
+    private final boolean[] mustMatch;
+    private final int[][] acceptedChoices;
+    private final int[] mustMatchIndexes;
+    private final int[] optionalIndexes;
+    private final long mustMatchWeight;
+    private final int[] canonicalOf;
+    private final int[] byCanonical;
+    private final MustMatchOrder mustMatchOrder;
+    private volatile OrderView orderView;
+
+    private MatchPlan(List<Criterion> criteria, CriteriaFingerprint fingerprint, MustMatchOrders orders) {
+        int size = criteria.size();
+        this.criteria = criteria.toArray(new Criterion[0]);
+        this.slots = new int[size];
+        this.truthTables = new boolean[size][];
+        this.weights = new int[size];
+        this.mustMatch = new boolean[size];
+        this.acceptedChoices = new int[size][];
+        for (int k = 0; k < size; k++) {
+            Criterion criterion = this.criteria[k];
+            slots[k] = criterion.getAnswer().getCharacteristic().getId();
+            truthTables[k] = truthTableOf(criterion);
+            weights[k] = criterion.getWeight().getValue();
+            mustMatch[k] = criterion.getWeight() == Weight.MustMatch;
+            acceptedChoices[k] = acceptedChoicesOf(truthTables[k]);
+        }
+        this.mustMatchIndexes = IntStream.range(0, size).filter(k -> mustMatch[k]).toArray();
+        this.optionalIndexes = IntStream.range(0, size).filter(k -> !mustMatch[k]).toArray();
+        this.mustMatchWeight = IntStream.of(mustMatchIndexes).mapToLong(k -> weights[k]).sum();
+
+        // 정규 번호: 지문의 항(term) 순서로 정렬한 MustMatch 조건의 번호. 조건을 추가한 순서와 상관없다.
+        long[] terms = IntStream.range(0, size).mapToLong(k -> CriteriaFingerprint.termOf(this.criteria[k])).toArray();
+        this.byCanonical = IntStream.of(mustMatchIndexes).boxed()
+            .sorted(Comparator.<Integer>comparingLong(k -> terms[k]).thenComparingInt(k -> k))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        this.canonicalOf = new int[size];
+        for (int c = 0; c < byCanonical.length; c++) {
+            canonicalOf[byCanonical[c]] = c;
+        }
+        if (mustMatchIndexes.length > 1) {
+            double[] costs = costsOf(this.criteria, acceptedChoices);
+            double[] canonicalCosts = IntStream.of(byCanonical).mapToDouble(k -> costs[k]).toArray();
+            int[] initialOrder = IntStream.of(mustMatchIndexes).map(k -> canonicalOf[k]).toArray();
+            this.mustMatchOrder = orders == null
+                ? new MustMatchOrder(canonicalCosts, initialOrder)
+                : orders.forFingerprint(fingerprint, canonicalCosts, initialOrder);
+        } else {
+            this.mustMatchOrder = null;
+        }
+        this.orderView = new OrderView(null, mustMatchIndexes);
+    }
+
+    /**
+     * 비트맵으로 검사할 때의 비용: 허용하는 선택지마다 비트 평면 수만큼 long 연산을 한다.
+     */
+    private static double[] costsOf(Criterion[] criteria, int[][] acceptedChoices) {
+        double[] costs = new double[criteria.length];
+        for (int k = 0; k < criteria.length; k++) {
+            int choiceCount = criteria[k].getAnswer().getCharacteristic().getAnswerChoiceCount();
+            costs[k] = 1.0 + acceptedChoices[k].length * (AnswerColumn.widthOf(choiceCount) + 1.0);
+        }
+        return costs;
+    }
+
+    public static MatchPlan compile(Criteria criteria) {
+        return compile(criteria, null);
+    }
+
+    /**
+     * @param orders 같은 지문의 계획끼리 검사 순서 통계를 공유할 곳. null 이면 이 계획만의 통계를 쓴다.
+     */
+    static MatchPlan compile(Criteria criteria, MustMatchOrders orders) {
+        List<Criterion> list = new ArrayList<>();
+        criteria.forEach(list::add);
+        return new MatchPlan(list, criteria.fingerprint(), orders);
+    }
+
+    /**
+     * 0 번 칸은 답변하지 않은 경우, 1 번 칸부터는 선택지 번호 + 1 에 대응한다.
+     * Criterion.matches(Answer) 와 같은 의미를 가지도록 Question.match(프로필의 선택지, 조건의 선택지) 로 채운다.
+     */
+    private static boolean[] truthTableOf(Criterion criterion) {
+        Question question = criterion.getAnswer().getCharacteristic();
+        int expected = criterion.getAnswer().getChoice();
+        boolean dontCare = criterion.getWeight() == Weight.DontCare;
+
+        boolean[] table = new boolean[question.getAnswerChoiceCount() + 1];
+        table[0] = dontCare;
+        for (int choice = 0; choice < question.getAnswerChoiceCount(); choice++) {
+            table[choice + 1] = dontCare || question.match(choice, expected);
+        }
+        return table;
+    }
+
+    private static int[] acceptedChoicesOf(boolean[] table) {
+        return IntStream.range(1, table.length).filter(i -> table[i]).map(i -> i - 1).toArray();
+    }
+
+    public int size() {
+        return criteria.length;
+    }
+
+    public Criterion getCriterion(int k) {
+        return criteria[k];
+    }
+
+    public int getSlot(int k) {
+        return slots[k];
+    }
+
+    public int getWeight(int k) {
+        return weights[k];
+    }
+
+    public boolean isMustMatch(int k) {
+        return mustMatch[k];
+    }
+
+    int[] mustMatchIndexes() {
+        return mustMatchIndexes.clone();
+    }
+
+    /**
+     * 지금 MustMatch 조건을 검사하는 순서
+     */
+    int[] mustMatchOrder() {
+        return checkOrder().clone();
+    }
+
+    /**
+     * 공유 통계의 순서(정규 번호)를 이 계획의 조건 번호로 바꾼 것. 순서가 바뀐 경우에만 다시 바꾼다.
+     */
+    private int[] checkOrder() {
+        OrderView view = orderView;
+        if (mustMatchOrder == null) {
+            return view.indexes;
+        }
+        int[] canonical = mustMatchOrder.current();
+        if (view.canonical != canonical) {
+            view = new OrderView(canonical, IntStream.of(canonical).map(c -> byCanonical[c]).toArray());
+            orderView = view;
+        }
+        return view.indexes;
+    }
+
+    int[] acceptedChoices(int k) {
+        return acceptedChoices[k].clone();
+    }
+
+    public boolean accepts(int k, int choice) {
+        int index = choice + 1;
+        return index >= 0 && index < truthTables[k].length && truthTables[k][index];
+    }
+
+    public boolean matches(int k, ChoiceLookup choices) {
+        return accepts(k, choices.choiceOf(slots[k]));
+    }
+
+    public long score(ChoiceLookup choices) {
+        long score = 0;
+        for (int k = 0; k < criteria.length; k++) {
+            if (matches(k, choices)) {
+                score += weights[k];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 필수 항목을 선택도 순서로 한 번만 검사하고, 모두 통과한 경우에만 나머지 조건으로 점수를 계산한다.
+     * 통과한 필수 항목은 다시 검사하지 않고 가중치 합만 더한다.
+     * 필수 항목이 실패하면 점수는 계산하지 않고, 추가한 순서상 처음으로 실패한 조건을 실패 원인으로 반환한다.
+     * 검사 순서는 관찰한 통계에 따라 바뀌므로, 실패 원인은 검사 순서와 상관없이 정한다.
+     */
+    public MatchResult evaluate(String profileId, ChoiceLookup choices) {
+        if (firstFailedMustMatch(choices) >= 0) {
+            return MatchResult.failed(profileId, criteria[firstFailedInDeclarationOrder(choices)]);
+        }
+        long score = mustMatchWeight;
+        boolean anyMatches = mustMatchIndexes.length > 0;
+        for (int k : optionalIndexes) {
+            if (matches(k, choices)) {
+                score += weights[k];
+                anyMatches = true;
+            }
+        }
+        return anyMatches ? MatchResult.matched(profileId, score) : MatchResult.noneMatched(profileId);
+    }
+
+    /**
+     * 프로필 하나씩 평가하는 경로에서는 64 번에 한 번만 통계를 남겨, 통계를 쌓는 비용을 줄인다.
+     *
+     * @return 처음으로 실패한 필수 조건의 번호. 모두 통과하면 -1
+     */
+    private int firstFailedMustMatch(ChoiceLookup choices) {
+        boolean sampled = mustMatchOrder != null && ThreadLocalRandom.current().nextInt(64) == 0;
+        for (int k : checkOrder()) {
+            boolean match = matches(k, choices);
+            if (sampled) {
+                mustMatchOrder.add(canonicalOf[k], 64, match ? 64 : 0);
+                mustMatchOrder.observed(64);
+            }
+            if (!match) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 실패한 프로필에만 호출하므로, 실패 원인을 찾는 비용은 실패 경로에서만 든다.
+     */
+    private int firstFailedInDeclarationOrder(ChoiceLookup choices) {
+        for (int k : mustMatchIndexes) {
+            if (!matches(k, choices)) {
+                return k;
+            }
+        }
+        throw new IllegalStateException("실패한 필수 조건이 없습니다.");
+    }
+
+    /**
+     * MatchSet.matches() 와 같은 규칙
+     * - 필수 항목이 매칭되지 않으면 false
+     * - 그 외에는 하나라도 매칭되면 true
+     */
+    public boolean matches(ChoiceLookup choices) {
+        if (firstFailedMustMatch(choices) >= 0) {
+            return false;
+        }
+        if (mustMatchIndexes.length > 0) {
+            return true;
+        }
+        for (int k : optionalIndexes) {
+            if (matches(k, choices)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 세그먼트의 선택지별 답변 수만 보고, 필수 항목을 만족하는 프로필이 하나도 없는 세그먼트를 걸러낸다.
+     */
+    boolean mayMatch(Segment segment) {
+        for (int k : mustMatchIndexes) {
+            if (truthTables[k][0]) {
+                continue;
+            }
+            ColumnView column = segment.column(slots[k]);
+            if (column == null || !anyAnswered(column, acceptedChoices[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean anyAnswered(ColumnView column, int[] choices) {
+        for (int choice : choices) {
+            if (column.count(choice) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * word 에 속한 64 개 프로필 중 criterion k 를 만족하는 프로필의 비트마스크
+     * (질문, 선택지) 별 비트맵을 비트 평면에서 바로 만들어 OR 한다.
+     */
+    long acceptMask(int k, Segment segment, int word) {
+        long present = segment.presentWord(word);
+        ColumnView column = segment.column(slots[k]);
+        if (column == null) {
+            return truthTables[k][0] ? present : 0L;
+        }
+        long mask = truthTables[k][0] ? present & ~column.answeredWord(word) : 0L;
+        for (int choice : acceptedChoices[k]) {
+            mask |= column.equalsMask(word, choice);
+        }
+        return mask & present;
+    }
+
+    /**
+     * 모든 MustMatch 조건의 비트맵을 교집합해, 점수를 계산해 볼 후보만 남긴다.
+     * 선택도 순서로 교집합하므로 후보가 빨리 0 이 되어 남은 조건의 비트맵을 만들지 않아도 된다.
+     * 조건마다 교집합 전후의 비트 수를 tally 에 세어 두고, 세그먼트를 다 훑은 뒤 record(tally) 로 한 번에 반영한다.
+     */
+    long mustMatchMask(Segment segment, int word, Tally tally) {
+        long mask = segment.presentWord(word);
+        int[] order = checkOrder();
+        for (int i = 0; i < order.length && mask != 0; i++) {
+            int k = order[i];
+            long before = mask;
+            mask &= acceptMask(k, segment, word);
+            tally.tested[k] += Long.bitCount(before);
+            tally.passed[k] += Long.bitCount(mask);
+        }
+        return mask;
+    }
+
+    Tally newTally() {
+        return new Tally(criteria.length);
+    }
+
+    /**
+     * 한 스레드가 모은 집계를 공유 통계에 더한다. 세그먼트 하나에 한 번 호출한다.
+     */
+    void record(Tally tally) {
+        if (mustMatchOrder == null) {
+            return;
+        }
+        long observed = 0;
+        for (int k : mustMatchIndexes) {
+            if (tally.tested[k] > 0) {
+                mustMatchOrder.add(canonicalOf[k], tally.tested[k], tally.passed[k]);
+                observed += tally.tested[k];
+                tally.tested[k] = 0;
+                tally.passed[k] = 0;
+            }
+        }
+        if (observed > 0) {
+            mustMatchOrder.observed(observed);
+        }
+    }
+
+    /**
+     * 한 스레드가 세그먼트를 훑는 동안만 쓰는 조건별 검사 / 통과 수
+     */
+    static final class Tally {
+
+        private final long[] tested;
+        private final long[] passed;
+
+        private Tally(int size) {
+            this.tested = new long[size];
+            this.passed = new long[size];
+        }
+    }
+
+    private static final class OrderView {
+
+        private final int[] canonical;
+        private final int[] indexes;
+
+        OrderView(int[] canonical, int[] indexes) {
+            this.canonical = canonical;
+            this.indexes = indexes;
+        }
+    }
+}
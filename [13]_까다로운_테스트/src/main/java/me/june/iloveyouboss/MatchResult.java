@@ -0,0 +1,57 @@
+package me.june.iloveyouboss;
+
+/**
+ * 프로필 하나를 Criteria 로 평가한 결과
+ * 불변 객체이므로 스레드 사이에서 그대로 공유할 수 있다.
+ * 필수 항목이 실패하면 그 자리에서 평가를 멈추므로, 매칭되지 않은 결과의 점수는 0 이다.
+ */
+public final class MatchResult {
+
+    private final String profileId;
+    private final boolean matched;
+    private final long score;
+    private final Criterion failedCriterion;
+
+    private MatchResult(String profileId, boolean matched, long score, Criterion failedCriterion) {
+        this.profileId = profileId;
+        this.matched = matched;
+        this.score = score;
+        this.failedCriterion = failedCriterion;
+    }
+
+    static MatchResult matched(String profileId, long score) {
+        return new MatchResult(profileId, true, score, null);
+    }
+
+    static MatchResult noneMatched(String profileId) {
+        return new MatchResult(profileId, false, 0, null);
+    }
+
+    static MatchResult failed(String profileId, Criterion failedCriterion) {
+        return new MatchResult(profileId, false, 0, failedCriterion);
+    }
+
+    public String getProfileId() {
+        return profileId;
+    }
+
+    public boolean isMatched() {
+        return matched;
+    }
+
+    public long getScore() {
+        return score;
+    }
+
+    /**
+     * 처음으로 실패한 MustMatch 조건, 없다면 null
+     */
+    public Criterion getFailedCriterion() {
+        return failedCriterion;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s matched=%s score=%d", profileId, matched, score);
+    }
+}
@@ -1,78 +1,80 @@
 package me.june.iloveyouboss;
 
-import java.util.Map;
-
 /**
  * 매칭 여부와 점수를 계산하는 책임을 가지는 클래스
  */
 public class MatchSet implements Comparable<MatchSet> {
 
-    private Map<String, Answer> answers;
-    private Criteria criteria;
-    private int score = Integer.MIN_VALUE;
+    private MatchPlan plan;
+    private ChoiceLookup choices;
+    private long score = Long.MIN_VALUE;
     private String profileId;
+    private int ordinal = -1;
+    private MatchResult result;
 
-    public MatchSet(String profileId, Map<String, Answer> answers, Criteria criteria) {
+    public MatchSet(String profileId, MatchPlan plan, ChoiceLookup choices) {
         this.profileId = profileId;
-        this.answers = answers;
-        this.criteria = criteria;
+        this.plan = plan;
+        this.choices = choices;
+    }
+
+    /**
+     * 저장소에서 만든 MatchSet 은 평가한 행의 ordinal 을 함께 가진다.
+     */
+    MatchSet(int ordinal, String profileId, MatchPlan plan, ChoiceLookup choices) {
+        this(profileId, plan, choices);
+        this.ordinal = ordinal;
+    }
+
+    MatchSet(int ordinal, MatchResult result, MatchPlan plan, ChoiceLookup choices) {
+        this(ordinal, result.getProfileId(), plan, choices);
+        this.result = result;
     }
 
     public String getProfileId() {
         return profileId;
     }
 
-    public int getScore() {
-        if (score == Integer.MIN_VALUE) {
+    /**
+     * 질의가 읽은 버전에서 이 행의 ordinal. 저장소 밖에서 만든 MatchSet 이면 -1 이다.
+     */
+    int ordinal() {
+        return ordinal;
+    }
+
+    /**
+     * MustMatch 의 가중치가 Integer.MAX_VALUE 이므로, int 로 더하면 다른 가중치와 합쳐지는 순간 음수로 넘친다.
+     * 점수 순위가 뒤집히지 않도록 long 으로 계산한다.
+     */
+    public long getScore() {
+        if (score == Long.MIN_VALUE) {
             calculateScore();
         }
         return score;
     }
 
+    /**
+     * 매칭된 경우에는 평가 결과의 점수를 그대로 쓰고,
+     * 필수 항목 실패로 평가가 중간에 멈춘 경우에만 전체 점수를 다시 계산한다.
+     */
     private void calculateScore() {
-        score = 0;
-        for (Criterion criterion : criteria) {
-            if (criterion.matches(answerMatching(criterion))) {
-                score += criterion.getWeight().getValue();
-            }
-        }
+        MatchResult result = getResult();
+        score = result.isMatched() ? result.getScore() : plan.score(choices);
     }
 
-    private Answer answerMatching(Criterion criterion) {
-        return answers.get(criterion.getAnswer().getQuestionText());
-    }
-
-    public boolean matches() {
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-        }
-        if (doesNotMeetAnyMustMatchCriterion()) {
-            return false;
-        }
-        return anyMatches();
-    }
-
-    private boolean doesNotMeetAnyMustMatchCriterion() {
-        for (Criterion criterion : criteria) {
-            boolean match = criterion.matches(answerMatching(criterion));
-            if (!match && criterion.getWeight() == Weight.MustMatch) {
-                return true;
-            }
+    public MatchResult getResult() {
+        if (result == null) {
+            result = plan.evaluate(profileId, choices);
         }
-        return false;
+        return result;
     }
 
-    private boolean anyMatches() {
-        boolean anyMatches = false;
-        for (Criterion criterion : criteria) {
-            anyMatches |= criterion.matches(answerMatching(criterion));
-        }
-        return anyMatches;
+    public boolean matches() {
+        return getResult().isMatched();
     }
 
     @Override
     public int compareTo(MatchSet that) {
-        return new Integer(getScore()).compareTo(new Integer(that.getScore()));
+        return Long.compare(getScore(), that.getScore());
     }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package me.june.iloveyouboss;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * ProfileMatcher 의 지표를 기록하고 스냅샷으로 보여 준다.
+ * 질의가 느릴 때 청크가 큐에서 기다린 것인지, 평가 자체가 느린 것인지, MatchListener 가 느린 것인지 구분할 수 있도록
+ * 질의 / 큐 대기 / 청크 실행 / listener 호출 시간을 따로 기록한다.
+ * 기록은 LatencyRecorder 와 LongAdder 로만 하므로 작업 스레드끼리 락을 다투지 않는다.
+ * 큐 길이와 실행 중인 작업 수는 읽을 때 실행기에서 가져온다.
+ * 지표를 읽어도 상태는 바뀌지 않는다. 처리량은 읽는 쪽에서 두 번 읽은 누적 카운터와 시각의 차로 구한다.
+ */
+public class MatcherMetrics implements MatcherMetricsMXBean {
+
+    private final LatencyRecorder queries = new LatencyRecorder();
+    private final LatencyRecorder queueWaits = new LatencyRecorder();
+    private final LatencyRecorder chunks = new LatencyRecorder();
+    private final LatencyRecorder listeners = new LatencyRecorder();
+    private final LongAdder profilesEvaluated = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final IntSupplier queueDepth;
+    private final IntSupplier activeWorkers;
+    private ObjectName registeredName;
+
+    /**
+     * queueDepth / activeWorkers 는 지표를 읽을 때마다 호출된다.
+     */
+    MatcherMetrics(IntSupplier queueDepth, IntSupplier activeWorkers) {
+        this.queueDepth = queueDepth;
+        this.activeWorkers = activeWorkers;
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(System.nanoTime(), queries.snapshot(), queueWaits.snapshot(), chunks.snapshot(),
+            listeners.snapshot(), profilesEvaluated.sum(), matches.sum(),
+            queueDepth.getAsInt(), activeWorkers.getAsInt());
+    }
+
+    /**
+     * 플랫폼 MBeanServer 에 me.june.iloveyouboss:type=ProfileMatcher,name=name 으로 등록한다.
+     * ProfileMatcher 를 close() 하면 등록이 해제된다.
+     */
+    public synchronized ObjectName register(String name) {
+        if (registeredName != null) {
+            throw new IllegalStateException("이미 등록되었습니다: " + registeredName);
+        }
+        try {
+            ObjectName objectName = new ObjectName(
+                "me.june.iloveyouboss:type=ProfileMatcher,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("지표를 MBean 으로 등록하지 못했습니다: " + name, e);
+        }
+    }
+
+    synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(registeredName);
+        } catch (JMException e) {
+            throw new IllegalStateException("MBean 등록을 해제하지 못했습니다: " + registeredName, e);
+        } finally {
+            registeredName = null;
+        }
+    }
+
+    void recordQuery(long startNanos) {
+        queries.record(System.nanoTime() - startNanos);
+    }
+
+    void recordQueueWait(long submittedNanos, long startNanos) {
+        queueWaits.record(startNanos - submittedNanos);
+    }
+
+    void recordChunk(long startNanos) {
+        chunks.record(System.nanoTime() - startNanos);
+    }
+
+    void recordEvaluated(long profiles) {
+        profilesEvaluated.add(profiles);
+    }
+
+    void recordMatches(long count) {
+        matches.add(count);
+    }
+
+    /**
+     * 호출 시간을 기록하고 매칭 수를 세는 listener 로 감싼다. 청크 전용 listener 도 같은 방식으로 감싼다.
+     */
+    MatchListener timed(MatchListener listener) {
+        return new TimedListener(listener);
+    }
+
+    private class TimedListener implements MatchListener {
+
+        private final MatchListener delegate;
+
+        TimedListener(MatchListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void foundMatch(Profile profile, MatchSet matchSet) {
+            long start = System.nanoTime();
+            try {
+                delegate.foundMatch(profile, matchSet);
+            } finally {
+                listeners.record(System.nanoTime() - start);
+                matches.increment();
+            }
+        }
+
+        @Override
+        public MatchListener forChunk() {
+            MatchListener chunkListener = delegate.forChunk();
+            return chunkListener == null || chunkListener == delegate ? this : new TimedListener(chunkListener);
+        }
+
+        @Override
+        public void chunkFinished(MatchListener chunkListener) {
+            delegate.chunkFinished(((TimedListener) chunkListener).delegate);
+        }
+    }
+
+    @Override
+    public LatencySnapshot getQueryLatency() {
+        return queries.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getQueueWait() {
+        return queueWaits.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getChunkLatency() {
+        return chunks.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getListenerLatency() {
+        return listeners.snapshot();
+    }
+
+    @Override
+    public long getProfilesEvaluated() {
+        return profilesEvaluated.sum();
+    }
+
+    @Override
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    @Override
+    public double getMatchRate() {
+        long evaluated = profilesEvaluated.sum();
+        return evaluated == 0 ? 0 : (double) matches.sum() / evaluated;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public int getActiveWorkers() {
+        return activeWorkers.getAsInt();
+    }
+}
@@ -0,0 +1,43 @@
+package me.june.iloveyouboss;
+
+/**
+ * JMX 로 노출하는 ProfileMatcher 의 지표. 지연 시간의 단위는 나노초다.
+ */
+public interface MatcherMetricsMXBean {
+
+    /**
+     * 질의 하나가 호출되어 반환될 때까지 걸린 시간
+     */
+    LatencySnapshot getQueryLatency();
+
+    /**
+     * 청크가 제출된 뒤 실행되기 시작할 때까지 기다린 시간
+     */
+    LatencySnapshot getQueueWait();
+
+    /**
+     * 청크 하나를 평가하는 데 걸린 시간 (청크 안에서 호출한 MatchListener 시간 포함)
+     */
+    LatencySnapshot getChunkLatency();
+
+    /**
+     * MatchListener.foundMatch() 호출 하나에 걸린 시간
+     */
+    LatencySnapshot getListenerLatency();
+
+    long getProfilesEvaluated();
+
+    long getMatches();
+
+    double getMatchRate();
+
+    /**
+     * 지금 시각 (System.nanoTime() 기준)
+     * 처리량은 ProfilesEvaluated 와 이 값을 두 번 읽어 (평가 수의 차) / (시각의 차) 로 구한다.
+     */
+    long getTimestampNanos();
+
+    int getQueueDepth();
+
+    int getActiveWorkers();
+}
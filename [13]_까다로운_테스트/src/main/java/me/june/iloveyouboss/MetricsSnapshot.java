@@ -0,0 +1,92 @@
+package me.june.iloveyouboss;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MatcherMetrics 의 한 시점 값
+ * 카운터와 히스토그램은 ProfileMatcher 를 만든 뒤로 누적된 값이다.
+ * 두 스냅샷 사이의 처리량과 분포는 profilesEvaluatedPerSecond(previous) 와 LatencySnapshot.minus() 로 구한다.
+ */
+public final class MetricsSnapshot {
+
+    private final long timestampNanos;
+    private final LatencySnapshot queryLatency;
+    private final LatencySnapshot queueWait;
+    private final LatencySnapshot chunkLatency;
+    private final LatencySnapshot listenerLatency;
+    private final long profilesEvaluated;
+    private final long matches;
+    private final int queueDepth;
+    private final int activeWorkers;
+
+    MetricsSnapshot(long timestampNanos, LatencySnapshot queryLatency, LatencySnapshot queueWait,
+        LatencySnapshot chunkLatency, LatencySnapshot listenerLatency, long profilesEvaluated, long matches,
+        int queueDepth, int activeWorkers) {
+        this.timestampNanos = timestampNanos;
+        this.queryLatency = queryLatency;
+        this.queueWait = queueWait;
+        this.chunkLatency = chunkLatency;
+        this.listenerLatency = listenerLatency;
+        this.profilesEvaluated = profilesEvaluated;
+        this.matches = matches;
+        this.queueDepth = queueDepth;
+        this.activeWorkers = activeWorkers;
+    }
+
+    /**
+     * System.nanoTime() 기준으로 스냅샷을 만든 시각
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public LatencySnapshot getQueryLatency() {
+        return queryLatency;
+    }
+
+    public LatencySnapshot getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencySnapshot getChunkLatency() {
+        return chunkLatency;
+    }
+
+    public LatencySnapshot getListenerLatency() {
+        return listenerLatency;
+    }
+
+    public long getProfilesEvaluated() {
+        return profilesEvaluated;
+    }
+
+    public long getMatches() {
+        return matches;
+    }
+
+    /**
+     * 평가한 프로필 중 매칭된 비율
+     */
+    public double getMatchRate() {
+        return profilesEvaluated == 0 ? 0 : (double) matches / profilesEvaluated;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getActiveWorkers() {
+        return activeWorkers;
+    }
+
+    /**
+     * previous 이후 초당 평가한 프로필 수
+     */
+    public double profilesEvaluatedPerSecond(MetricsSnapshot previous) {
+        long elapsed = timestampNanos - previous.timestampNanos;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (double) (profilesEvaluated - previous.profilesEvaluated) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+}
@@ -0,0 +1,96 @@
+package me.june.iloveyouboss;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * 같은 조건 묶음(CriteriaFingerprint)의 MustMatch 조건을 검사할 순서를, 실제로 관찰한 통과율에 따라 조정한다.
+ * 거의 항상 실패하는 조건과 비용이 싼 조건을 먼저 검사해야 필수 항목 실패로 인한 조기 종료가 빨리 일어난다.
+ * 조건의 순위는 비용 / 탈락률 이며 작을수록 먼저 검사한다. (서로 독립인 조건을 나열하는 최적 순서)
+ * <p>
+ * MatchPlan 은 질의마다 새로 컴파일되므로 통계는 ProfileMatcher 마다 MustMatchOrders 에 지문별로 두어,
+ * 같은 매처에서 같은 조건 묶음의 질의가 이어서 쌓는다. 조건은 지문 안에서의 정렬 순서(정규 번호)로 가리키므로, 조건을 추가한 순서가 달라도 같은 통계를 쓴다.
+ * 작업 스레드는 세그먼트 하나를 훑는 동안 지역 집계(MatchPlan.Tally)에 세고, 세그먼트가 끝나면 LongAdder 에 한 번만 더한다.
+ * REORDER_INTERVAL 번 관찰할 때마다 한 스레드만 순서를 다시 계산하고, 이전 통계를 절반으로 줄여 분포 변화를 따라간다.
+ */
+final class MustMatchOrder {
+
+    static final long REORDER_INTERVAL = 1 << 12;
+
+    private final double[] costs;
+    private final LongAdder[] tested;
+    private final LongAdder[] passed;
+    private final AtomicLong observations = new AtomicLong();
+    private final AtomicBoolean reordering = new AtomicBoolean();
+    private final double[] decayedTested;
+    private final double[] decayedPassed;
+    private volatile int[] order;
+
+    /**
+     * @param costs        정규 번호별 검사 비용
+     * @param initialOrder 아직 관찰한 것이 없을 때의 검사 순서 (정규 번호)
+     */
+    MustMatchOrder(double[] costs, int[] initialOrder) {
+        this.costs = costs;
+        this.tested = new LongAdder[costs.length];
+        this.passed = new LongAdder[costs.length];
+        for (int c = 0; c < costs.length; c++) {
+            tested[c] = new LongAdder();
+            passed[c] = new LongAdder();
+        }
+        this.decayedTested = new double[costs.length];
+        this.decayedPassed = new double[costs.length];
+        this.order = initialOrder;
+    }
+
+    /**
+     * 지금 검사해야 할 순서 (정규 번호). 반환된 배열은 고치지 않으며, 순서가 바뀌면 새 배열로 교체된다.
+     */
+    int[] current() {
+        return order;
+    }
+
+    /**
+     * 정규 번호 c 의 조건을 testedCount 개 프로필에 검사해 passedCount 개가 통과했다.
+     * 관찰 수는 따로 observed() 로 알린다.
+     */
+    void add(int c, long testedCount, long passedCount) {
+        tested[c].add(testedCount);
+        passed[c].add(passedCount);
+    }
+
+    void observed(long count) {
+        if (observations.addAndGet(count) >= REORDER_INTERVAL && reordering.compareAndSet(false, true)) {
+            try {
+                observations.set(0);
+                reorder();
+            } finally {
+                reordering.set(false);
+            }
+        }
+    }
+
+    /**
+     * reordering 플래그를 잡은 스레드 하나만 호출하므로, 누적된 통계 배열은 동기화 없이 고친다.
+     */
+    private void reorder() {
+        double[] ranks = new double[costs.length];
+        for (int c = 0; c < costs.length; c++) {
+            decayedTested[c] = decayedTested[c] / 2 + tested[c].sumThenReset();
+            decayedPassed[c] = decayedPassed[c] / 2 + passed[c].sumThenReset();
+            double passRate = (decayedPassed[c] + 1.0) / (decayedTested[c] + 2.0);
+            ranks[c] = costs[c] / (1.0 - passRate);
+        }
+        int[] next = IntStream.range(0, costs.length).boxed()
+            .sorted(Comparator.comparingDouble(c -> ranks[c]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        if (!Arrays.equals(next, order)) {
+            order = next;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package me.june.iloveyouboss;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ProfileMatcher 하나가 지문(CriteriaFingerprint)별로 쌓는 MustMatch 검사 순서 통계
+ * 매처마다 따로 두므로, 다른 매처의 프로필 분포가 이 매처의 검사 순서를 바꾸지 않는다.
+ * 최근에 쓴 지문 capacity 개까지만 보관한다.
+ */
+class MustMatchOrders {
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final Map<CriteriaFingerprint, MustMatchOrder> orders;
+
+    MustMatchOrders() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    MustMatchOrders(int capacity) {
+        this.orders = new LinkedHashMap<CriteriaFingerprint, MustMatchOrder>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CriteriaFingerprint, MustMatchOrder> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized MustMatchOrder forFingerprint(CriteriaFingerprint fingerprint, double[] costs, int[] initialOrder) {
+        return orders.computeIfAbsent(fingerprint, key -> new MustMatchOrder(costs, initialOrder));
+    }
+
+    synchronized int size() {
+        return orders.size();
+    }
+}
@@ -0,0 +1,86 @@
+package me.june.iloveyouboss;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 세그먼트 범위를 반씩 나누어 가며 평가하는 fork/join 작업
+ * 잎 작업은 자기 세그먼트의 매칭 결과를 지역 버퍼에 담아 profile id 순으로 정렬하고,
+ * 부모 작업은 두 정렬된 버퍼를 병합한다. 코어 수나 작업 훔치기 순서와 상관없이 결과 순서가 같다.
+ */
+class PartitionedMatchTask extends RecursiveTask<List<MatchSet>> {
+
+    static final Comparator<MatchSet> BY_PROFILE_ID = Comparator.comparing(MatchSet::getProfileId);
+
+    private final StoreVersion profiles;
+    private final MatchPlan plan;
+    private final int fromSegment;
+    private final int toSegment;
+
+    PartitionedMatchTask(StoreVersion profiles, MatchPlan plan, int fromSegment, int toSegment) {
+        this.profiles = profiles;
+        this.plan = plan;
+        this.fromSegment = fromSegment;
+        this.toSegment = toSegment;
+    }
+
+    @Override
+    protected List<MatchSet> compute() {
+        if (toSegment - fromSegment <= 1) {
+            return fromSegment < toSegment ? matchSegment(profiles, plan, fromSegment) : new ArrayList<>();
+        }
+        int middle = (fromSegment + toSegment) >>> 1;
+        PartitionedMatchTask left = new PartitionedMatchTask(profiles, plan, fromSegment, middle);
+        PartitionedMatchTask right = new PartitionedMatchTask(profiles, plan, middle, toSegment);
+        left.fork();
+        List<MatchSet> rightMatches = right.compute();
+        return merge(left.join(), rightMatches);
+    }
+
+    static List<MatchSet> matchSegment(StoreVersion profiles, MatchPlan plan, int segment) {
+        List<MatchSet> matches = new ArrayList<>();
+        for (int ordinal : profiles.mustMatchCandidates(plan, segment)) {
+            ChoiceLookup row = profiles.row(ordinal);
+            MatchResult result = plan.evaluate(profiles.idOf(ordinal), row);
+            if (result.isMatched()) {
+                matches.add(new MatchSet(ordinal, result, plan, row));
+            }
+        }
+        matches.sort(BY_PROFILE_ID);
+        return matches;
+    }
+
+    /**
+     * 세그먼트별로 정렬된 버퍼들을 fork/join 과 같은 모양으로 반씩 나누어 병합한다.
+     * 앞에서부터 하나씩 이어 붙이면 O(N × 세그먼트 수) 만큼 복사하지만, 이렇게 하면 O(N log 세그먼트 수) 다.
+     */
+    static List<MatchSet> mergeAll(List<List<MatchSet>> bySegment) {
+        return mergeAll(bySegment, 0, bySegment.size());
+    }
+
+    private static List<MatchSet> mergeAll(List<List<MatchSet>> bySegment, int from, int to) {
+        if (to - from <= 1) {
+            return from < to ? bySegment.get(from) : new ArrayList<>();
+        }
+        int middle = (from + to) >>> 1;
+        return merge(mergeAll(bySegment, from, middle), mergeAll(bySegment, middle, to));
+    }
+
+    static List<MatchSet> merge(List<MatchSet> left, List<MatchSet> right) {
+        List<MatchSet> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            if (BY_PROFILE_ID.compare(left.get(i), right.get(j)) <= 0) {
+                merged.add(left.get(i++));
+            } else {
+                merged.add(right.get(j++));
+            }
+        }
+        merged.addAll(left.subList(i, left.size()));
+        merged.addAll(right.subList(j, right.size()));
+        return merged;
+    }
+}
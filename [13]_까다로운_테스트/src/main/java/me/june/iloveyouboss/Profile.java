@@ -3,12 +3,14 @@ package me.june.iloveyouboss;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-public class Profile {
+public class Profile implements ChoiceLookup {
 
     private Map<String, Answer> answers = new HashMap<>();
+    private final QuestionTable<Integer> choices = new QuestionTable<>();
     private String id;
 
     public Profile(String id) {
@@ -25,10 +27,48 @@ public class Profile {
 
     public void add(Answer answer) {
         answers.put(answer.getQuestionText(), answer);
+        putChoice(answer.getCharacteristic().getId(), answer.getChoice());
+    }
+
+    /**
+     * 질문 id 로 찾는 선택지 표
+     * MatchPlan 이 문자열 해싱 없이 답변을 찾을 수 있도록 한다. 질문 id 는 어떤 int 든 될 수 있다.
+     */
+    private void putChoice(int questionId, int choice) {
+        choices.put(questionId, choice);
+    }
+
+    @Override
+    public int choiceOf(int questionId) {
+        Integer choice = choices.get(questionId);
+        return choice == null ? UNANSWERED : choice;
     }
 
     public MatchSet getMatchSet(Criteria criteria) {
-        return new MatchSet(id, answers, criteria);
+        return getMatchSet(MatchPlan.compile(criteria));
+    }
+
+    public MatchSet getMatchSet(MatchPlan plan) {
+        return new MatchSet(id, plan, this);
+    }
+
+    /**
+     * ProfileStore 가 돌려주는 뷰는 매번 새로 만들어지므로, 동등성은 id 로 판단한다.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Profile)) {
+            return false;
+        }
+        return Objects.equals(id, ((Profile) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
     }
 
     @Override
@@ -41,4 +81,4 @@ public class Profile {
             .filter(pred)
             .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package me.june.iloveyouboss;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 한 줄에 프로필 하나씩 적힌 CSV 파일을 읽어 ProfileMatcher 에 일괄 적재한다.
+ * <pre>
+ * # 프로필 id, 질문 id:선택지 ...
+ * june,1:Yes,2:30
+ * </pre>
+ * 파일은 BATCH_SIZE 줄씩 읽고, 배치 하나를 PARSE_CHUNK_SIZE 줄씩 나눠 병렬로 파싱하는 동안 다음 배치를 읽는다.
+ * 파싱은 생성할 때 넘긴 실행기에서, 넘기지 않았으면 적재할 ProfileMatcher 의 실행기에서 돌린다.
+ * (공용 ForkJoinPool 을 쓰지 않으므로 다른 병렬 스트림과 스레드를 다투지 않는다)
+ * 선택지 텍스트는 Question 에 미리 만들어 둔 해시 테이블로 찾고, 파싱된 배치는 읽은 순서대로 한 번에 추가한다.
+ */
+public class ProfileLoader {
+
+    static final int BATCH_SIZE = 10_000;
+    static final int PARSE_CHUNK_SIZE = 1_000;
+    private static final String COMMENT = "#";
+
+    private final QuestionTable<Question> questions = new QuestionTable<>();
+    private final Executor parsers;
+
+    public ProfileLoader(Collection<? extends Question> catalog) {
+        this(catalog, null);
+    }
+
+    /**
+     * @param parsers 파싱을 돌릴 실행기. null 이면 적재할 ProfileMatcher 의 실행기를 쓴다.
+     */
+    public ProfileLoader(Collection<? extends Question> catalog, Executor parsers) {
+        for (Question question : catalog) {
+            questions.put(question.getId(), question);
+        }
+        this.parsers = parsers;
+    }
+
+    /**
+     * @return 적재한 프로필 수
+     */
+    public int load(Path file, ProfileMatcher matcher) throws IOException {
+        int loaded = 0;
+        Executor executor = parsers != null ? parsers : matcher.getExecutors();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            CompletableFuture<List<Profile>> parsing = null;
+            int lineNumber = 0;
+            List<String> batch;
+            while (!(batch = readBatch(reader)).isEmpty()) {
+                CompletableFuture<List<Profile>> next = parseAsync(batch, lineNumber, executor);
+                lineNumber += batch.size();
+                if (parsing != null) {
+                    loaded += addAll(parsing, matcher);
+                }
+                parsing = next;
+            }
+            if (parsing != null) {
+                loaded += addAll(parsing, matcher);
+            }
+        }
+        return loaded;
+    }
+
+    private static List<String> readBatch(BufferedReader reader) throws IOException {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        String line;
+        while (batch.size() < BATCH_SIZE && (line = reader.readLine()) != null) {
+            batch.add(line);
+        }
+        return batch;
+    }
+
+    /**
+     * 청크마다 작업을 하나씩 실행기에 넘기고, 청크 순서대로 이어 붙인 배치를 돌려준다.
+     */
+    private CompletableFuture<List<Profile>> parseAsync(List<String> lines, int firstLineNumber, Executor executor) {
+        List<CompletableFuture<List<Profile>>> chunks = new ArrayList<>();
+        for (int from = 0; from < lines.size(); from += PARSE_CHUNK_SIZE) {
+            int start = from;
+            int end = Math.min(from + PARSE_CHUNK_SIZE, lines.size());
+            chunks.add(CompletableFuture.supplyAsync(() -> parseChunk(lines, start, end, firstLineNumber), executor));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<Profile> batch = new ArrayList<>(lines.size());
+            for (CompletableFuture<List<Profile>> chunk : chunks) {
+                batch.addAll(chunk.join());
+            }
+            return batch;
+        });
+    }
+
+    private List<Profile> parseChunk(List<String> lines, int from, int to, int firstLineNumber) {
+        List<Profile> profiles = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            if (!isBlankOrComment(lines.get(i))) {
+                profiles.add(parse(lines.get(i), firstLineNumber + i + 1));
+            }
+        }
+        return profiles;
+    }
+
+    private static int addAll(CompletableFuture<List<Profile>> parsing, ProfileMatcher matcher) {
+        try {
+            List<Profile> batch = parsing.join();
+            matcher.addAll(batch);
+            return batch.size();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isBlankOrComment(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith(COMMENT);
+    }
+
+    Profile parse(String line, int lineNumber) {
+        String[] fields = line.split(",");
+        Profile profile = new Profile(fields[0].trim());
+        for (int i = 1; i < fields.length; i++) {
+            String field = fields[i];
+            int separator = field.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException(
+                    String.format("%d 번째 줄: '질문 id:선택지' 형식이 아닙니다: %s", lineNumber, field));
+            }
+            Question question = question(field.substring(0, separator).trim(), lineNumber);
+            try {
+                profile.add(question.answer(field.substring(separator + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("%d 번째 줄: %s", lineNumber, e.getMessage()), e);
+            }
+        }
+        return profile;
+    }
+
+    private Question question(String id, int lineNumber) {
+        try {
+            Question question = questions.get(Integer.parseInt(id));
+            if (question != null) {
+                return question;
+            }
+        } catch (NumberFormatException e) {
+            // 아래에서 같은 예외로 처리한다.
+        }
+        throw new IllegalArgumentException(String.format("%d 번째 줄: 알 수 없는 질문 id 입니다: %s", lineNumber, id));
+    }
+}
@@ -1,30 +1,392 @@
 package me.june.iloveyouboss;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-public class ProfileMatcher {
+/**
+ * 여러 질의를 동시에 처리하는 오래 사용하는 매칭 엔진
+ * 질의마다 스레드풀을 만들고 닫는 대신, ExecutionMode 에 따라 만든 실행기 하나를 close() 할 때까지 재사용한다.
+ * 작업은 프로필 하나가 아닌 청크(세그먼트) 단위로 제출하고,
+ * 동시에 처리할 수 있는 양을 넘으면 제출한 스레드를 기다리게 하거나 직접 처리하게 해 역압(backpressure)을 건다.
+ */
+public class ProfileMatcher implements AutoCloseable {
 
-    private static final int DEFAULT_POOL_SIZE = 4;
-    private ExecutorService executors = Executors.newFixedThreadPool(DEFAULT_POOL_SIZE);
+    private static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    static final int CHUNK_SIZE = 1024;
+    static final long DEFAULT_CACHE_CAPACITY = 100_000;
 
-    private Map<String, Profile> profiles = new HashMap<>();
+    private final ExecutionMode mode;
+    private final ExecutorService executors;
+    private final MatchCache resultCache;
+    private final MustMatchOrders mustMatchOrders = new MustMatchOrders();
+    private final MatcherMetrics metrics;
+
+    private volatile ProfileStore profiles = new ProfileStore();
+    private final Object mutations = new Object();
+    private WriteAheadLog log;
+    private Path snapshotFile;
+    private final StandingQueryIndex standingQueries = new StandingQueryIndex();
+    private final List<Integer> unpublished = new ArrayList<>();
+    private long unpublishedSequence;
+    private long publishedSequence;
+    private volatile boolean dirty;
+    private volatile boolean closed;
+    private final ScoringKernel scoringKernel = ScoringKernel.create();
+
+    public ProfileMatcher() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    public ProfileMatcher(int poolSize) {
+        this(ExecutionMode.PLATFORM_POOL, poolSize);
+    }
+
+    /**
+     * concurrency 는 동시에 처리되는 청크 수의 상한이다.
+     * PLATFORM_POOL 에서는 스레드 수, VIRTUAL_THREADS 에서는 동시에 실행되는 가상 스레드 수,
+     * FORK_JOIN 에서는 병렬 수준이 된다.
+     */
+    public ProfileMatcher(ExecutionMode mode, int concurrency) {
+        this(mode, concurrency, DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * resultCacheCapacity 는 findMatches 결과 캐시에 보관할 MatchSet 의 최대 개수다. 0 이면 캐시하지 않는다.
+     */
+    public ProfileMatcher(ExecutionMode mode, int concurrency, long resultCacheCapacity) {
+        this.resultCache = new MatchCache(resultCacheCapacity);
+        this.mode = mode;
+        this.executors = mode.newExecutor(concurrency);
+        this.metrics = new MatcherMetrics(this::queueDepth, this::activeWorkers);
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return mode;
+    }
+
+    /**
+     * 질의 지연 시간, 큐 대기 / 청크 실행 / listener 호출 시간, 처리량과 매칭 비율
+     * JMX 로 보려면 metrics().register(name) 을 호출한다.
+     */
+    public MatcherMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * 실행되기를 기다리는 청크 수. VIRTUAL_THREADS 에서는 허가를 기다리는 제출 스레드 수다.
+     */
+    private int queueDepth() {
+        if (executors instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executors).getQueue().size();
+        }
+        if (executors instanceof BoundedThreadPerTaskExecutor) {
+            return ((BoundedThreadPerTaskExecutor) executors).queueDepth();
+        }
+        if (executors instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executors;
+            return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+        }
+        return 0;
+    }
+
+    private int activeWorkers() {
+        if (executors instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executors).getActiveCount();
+        }
+        if (executors instanceof BoundedThreadPerTaskExecutor) {
+            return ((BoundedThreadPerTaskExecutor) executors).activeCount();
+        }
+        if (executors instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executors).getActiveThreadCount();
+        }
+        return 0;
+    }
 
     ExecutorService getExecutors() {
         return executors;
     }
 
+    StoreVersion currentVersion() {
+        return profiles.current();
+    }
+
+    WriteAheadLog writeAheadLog() {
+        synchronized (mutations) {
+            return log;
+        }
+    }
+
+    /**
+     * 같은 id 로 다시 추가하면 기존 답변을 덮어쓴다.
+     * 추가된 프로필은 등록된 상시 질의 중 후보가 되는 질의에만 다시 평가된다.
+     * recover() 로 로그를 열었다면 로그가 디스크에 기록된 뒤에 반환한다.
+     * 반환한 뒤에 시작한 질의는 추가된 프로필을 본다.
+     */
     public void add(Profile profile) {
-        profiles.put(profile.getId(), profile);
+        long sequence;
+        synchronized (mutations) {
+            checkLog();
+            sequence = log == null ? 0 : log.appendAdd(profile);
+            track(profiles.put(profile));
+            changed();
+        }
+        publishDurable(sequence);
+    }
+
+    /**
+     * 여러 프로필을 한 번에 추가한다. (ProfileLoader 의 일괄 적재용)
+     * 로그는 배치 전체에 대해 한 번만 force() 하고, 버전도 많아야 한 번만 발행한다.
+     */
+    public void addAll(Collection<Profile> batch) {
+        long sequence;
+        synchronized (mutations) {
+            checkLog();
+            sequence = log == null ? 0 : log.appendAddAll(batch);
+            for (int ordinal : profiles.putAll(batch)) {
+                track(ordinal);
+            }
+            changed();
+        }
+        publishDurable(sequence);
+    }
+
+    /**
+     * 이미 추가된 프로필의 답변 하나를 바꾸고, 상시 질의에 다시 평가한다.
+     */
+    public void update(String profileId, Answer answer) {
+        long sequence;
+        synchronized (mutations) {
+            checkLog();
+            if (!profiles.contains(profileId)) {
+                throw new IllegalArgumentException("저장되지 않은 프로필입니다: " + profileId);
+            }
+            sequence = log == null ? 0 : log.appendUpdate(profileId, answer);
+            track(profiles.set(profileId, answer));
+            changed();
+        }
+        publishDurable(sequence);
+    }
+
+    /**
+     * @return 저장된 프로필이었다면 true
+     */
+    public boolean remove(String profileId) {
+        long sequence;
+        synchronized (mutations) {
+            checkLog();
+            if (!profiles.contains(profileId)) {
+                return false;
+            }
+            sequence = log == null ? 0 : log.appendRemove(profileId);
+            profiles.delete(profileId);
+            changed();
+        }
+        publishDurable(sequence);
+        return true;
+    }
+
+    /**
+     * 로그 기록이 한 번 실패하면 이후의 변경은 디스크에 남지 않으므로, 메모리를 고치기 전에 거절한다.
+     * 변경은 로그에 먼저 붙인 뒤에 저장소에 반영하므로, 레코드를 만들지 못한 변경(너무 큰 레코드 등)은 저장소에도 남지 않는다.
+     */
+    private void checkLog() {
+        if (log != null) {
+            log.checkHealthy();
+        }
+    }
+
+    /**
+     * 상시 질의가 등록되어 있을 때만, 발행할 때 다시 평가할 ordinal 을 모아 둔다.
+     */
+    private void track(int ordinal) {
+        if (!standingQueries.isEmpty()) {
+            unpublished.add(ordinal);
+        }
+    }
+
+    /**
+     * 발행된 세그먼트는 다음 변경 때 통째로 복사되므로, 변경마다 발행하면 한 행을 추가할 때마다 세그먼트 하나를 복사한다.
+     * 그래서 로그가 없으면 발행은 질의가 버전을 읽을 때까지 미루고 (readVersion), 그 사이의 변경은 한 번의 복사를 나눠 쓴다.
+     * 상시 질의가 등록되어 있으면 변경을 바로 알려야 하므로 변경마다 발행한다.
+     * 로그가 있으면 변경한 스레드가 디스크에 기록된 것을 확인한 뒤에 발행한다. (publishDurable)
+     */
+    private void changed() {
+        if (log != null) {
+            unpublishedSequence = log.appended();
+        } else if (standingQueries.isEmpty()) {
+            dirty = true;
+        } else {
+            publishChanges();
+        }
+    }
+
+    /**
+     * 질의가 읽을 버전. 로그 없이 발행을 미뤄 둔 변경이 있으면 먼저 발행한다.
+     * 질의는 mutations 락을 잡거나 로그를 기다리지 않는다. 저장소의 발행은 변경 하나를 반영하는 동안만 기다린다.
+     * 플래그를 발행보다 먼저 내리므로, 그 사이에 들어온 변경은 이번 발행에 포함되거나 다음 질의가 발행한다.
+     * 로그가 있으면 변경은 디스크에 기록된 뒤 변경한 스레드가 발행하므로, 질의는 발행된 버전만 읽는다.
+     */
+    private StoreVersion readVersion() {
+        ProfileStore store = profiles;
+        if (dirty) {
+            dirty = false;
+            store.publish();
+        }
+        return store.current();
+    }
+
+    /**
+     * 변경은 mutations 락 안에서 저장소에 반영하고 로그에 붙이므로, 로그 순서와 반영 순서가 같다.
+     * force() 는 먼저 락 밖에서 기다리므로 동시에 들어온 변경들이 한 번의 force() 를 나눠 쓴다. (그룹 커밋)
+     * 발행은 저장소 전체를 내보내므로, 락 안에서 그때까지 붙은 레코드가 모두 디스크에 기록된 것을 확인한 뒤에만 한다.
+     * 기록이 실패하면 발행하지 않으므로, 질의와 상시 질의는 디스크에 남은 변경만 본다.
+     * 같은 force() 를 나눠 쓴 변경들은 먼저 락을 잡은 스레드가 한 번에 발행하고, 나머지는 발행된 순번을 보고 그냥 돌아간다.
+     */
+    private void publishDurable(long sequence) {
+        WriteAheadLog current;
+        synchronized (mutations) {
+            current = log;
+        }
+        if (current == null || sequence <= 0) {
+            return;
+        }
+        current.sync(sequence);
+        synchronized (mutations) {
+            if (log != current || publishedSequence >= sequence) {
+                return;
+            }
+            current.sync(unpublishedSequence);
+            publishChanges();
+        }
+    }
+
+    /**
+     * mutations 락 안에서 호출한다. 새 버전을 발행하고, 발행된 버전으로 바뀐 프로필을 상시 질의에 평가한다.
+     */
+    private void publishChanges() {
+        StoreVersion store = profiles.publish();
+        publishedSequence = unpublishedSequence;
+        dirty = false;
+        List<Integer> ordinals = new ArrayList<>(unpublished);
+        unpublished.clear();
+        for (int ordinal : ordinals) {
+            percolate(store, ordinal);
+        }
+    }
+
+    /**
+     * 현재 프로필 저장소를 스냅샷 파일로 저장한다.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        ProfileSnapshot.write(readVersion(), file);
+    }
+
+    /**
+     * 스냅샷 파일을 매핑해 프로필 저장소를 교체한다. 질의를 시작하기 전에 호출한다.
+     */
+    public void loadSnapshot(Path file) throws IOException {
+        synchronized (mutations) {
+            profiles = ProfileSnapshot.open(file);
+            unpublished.clear();
+            dirty = false;
+        }
+    }
+
+    /**
+     * 마지막 스냅샷(없으면 빈 저장소) 위에 로그를 다시 적용해 저장소를 복원하고,
+     * 이후의 add / update / remove 를 같은 로그에 기록한다. 질의를 시작하기 전에 호출한다.
+     */
+    public void recover(Path snapshot, Path logFile) throws IOException {
+        synchronized (mutations) {
+            ProfileStore store = Files.exists(snapshot) ? ProfileSnapshot.open(snapshot) : new ProfileStore();
+            WriteAheadLog replayed = WriteAheadLog.replay(logFile, store);
+            closeLog();
+            profiles = store;
+            log = replayed;
+            snapshotFile = snapshot;
+            unpublished.clear();
+            unpublishedSequence = 0;
+            publishedSequence = 0;
+            dirty = false;
+        }
+    }
+
+    /**
+     * recover() 에 넘긴 경로로 스냅샷을 새로 저장하고 로그를 비운다.
+     * 스냅샷을 저장한 뒤 로그를 비우기 전에 죽더라도, 로그의 레코드는 다시 적용해도 결과가 같다.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (mutations) {
+            if (log == null) {
+                throw new IllegalStateException("recover() 로 로그를 연 뒤에 호출해야 합니다.");
+            }
+            log.sync(unpublishedSequence);
+            publishChanges();
+            ProfileSnapshot.write(profiles, snapshotFile);
+            log.truncate();
+        }
+    }
+
+    private void closeLog() throws IOException {
+        if (log != null) {
+            WriteAheadLog closing = log;
+            log = null;
+            closing.close();
+        }
+    }
+
+    /**
+     * 상시 질의를 등록한다. 이후 추가 / 변경되는 프로필이 조건에 맞으면,
+     * 그 변경을 발행하는 스레드(add / update 를 호출한 스레드 중 하나)에서 listener 가 호출된다.
+     */
+    public StandingQuery register(Criteria criteria, MatchListener listener) {
+        StandingQuery query = new StandingQuery(criteria, listener, mustMatchOrders);
+        synchronized (mutations) {
+            standingQueries.register(query);
+        }
+        return query;
+    }
+
+    public void unregister(StandingQuery query) {
+        synchronized (mutations) {
+            standingQueries.unregister(query);
+        }
+    }
+
+    private void percolate(StoreVersion store, int ordinal) {
+        ChoiceLookup row = store.row(ordinal);
+        for (StandingQuery query : standingQueries.candidates(row)) {
+            metrics.recordEvaluated(1);
+            MatchResult result = query.getPlan().evaluate(store.idOf(ordinal), row);
+            if (result.isMatched()) {
+                metrics.timed(query.getListener()).foundMatch(
+                    store.profile(ordinal), new MatchSet(ordinal, result, query.getPlan(), row));
+            }
+        }
     }
 
     /**
      * 멀티 스레드 코드
+     * matchSets 를 CHUNK_SIZE 단위로 나누어 제출하고, 모든 청크가 끝날 때까지 기다린다.
      */
     public void findMatchingProfiles(
         Criteria criteria,
@@ -32,26 +394,341 @@ public class ProfileMatcher {
         List<MatchSet> matchSets,
         BiConsumer<MatchListener, MatchSet> processFunction
     ) {
-        for (MatchSet matchSet : matchSets) {
-            Runnable runnable = () -> processFunction.accept(listener, matchSet);
-            executors.execute(runnable);
+        long start = System.nanoTime();
+        MatchListener timed = metrics.timed(listener);
+        int chunkCount = (matchSets.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        try {
+            runChunks(chunkCount, chunk -> inChunk(timed, chunkListener -> {
+                int from = chunk * CHUNK_SIZE;
+                int to = Math.min(from + CHUNK_SIZE, matchSets.size());
+                for (MatchSet matchSet : matchSets.subList(from, to)) {
+                    processFunction.accept(chunkListener, matchSet);
+                }
+                return null;
+            }));
+            metrics.recordEvaluated(matchSets.size());
+        } finally {
+            metrics.recordQuery(start);
         }
-        executors.shutdown();
     }
 
+    /**
+     * 세그먼트 하나를 청크 하나로 처리해, 같은 컬럼 데이터를 한 스레드가 이어서 읽도록 한다.
+     * FORK_JOIN 모드에서는 매칭을 모두 모은 뒤 profile id 순서대로 listener 를 호출한다.
+     * 질의는 시작할 때 발행된 버전 하나만 읽으므로, 도중에 들어온 변경은 결과에 섞이지 않는다.
+     */
     public void findMatchProfiles(Criteria criteria, MatchListener listener) {
-        findMatchingProfiles(criteria, listener, collectMatchSets(criteria), this::process);
+        long start = System.nanoTime();
+        StoreVersion store = readVersion();
+        MatchPlan plan = MatchPlan.compile(criteria, mustMatchOrders);
+        MatchListener timed = metrics.timed(listener);
+        try {
+            if (mode == ExecutionMode.FORK_JOIN) {
+                List<MatchSet> matches = findMatches(store, plan);
+                inChunk(timed, chunkListener -> {
+                    for (MatchSet matchSet : matches) {
+                        chunkListener.foundMatch(store.profile(matchSet.ordinal()), matchSet);
+                    }
+                    return null;
+                });
+            } else {
+                runChunks(store.segmentCount(), segment -> inChunk(timed, chunkListener -> {
+                    for (int ordinal : store.mustMatchCandidates(plan, segment)) {
+                        process(store, chunkListener,
+                            new MatchSet(ordinal, store.idOf(ordinal), plan, store.row(ordinal)));
+                    }
+                    return null;
+                }));
+            }
+            metrics.recordEvaluated(store.size());
+        } finally {
+            metrics.recordQuery(start);
+        }
+    }
+
+    /**
+     * 여러 질의를 프로필을 한 번만 훑으면서 함께 평가한다. (공유 스캔)
+     * queries 의 i 번째 질의에 매칭된 프로필은 listeners 의 i 번째 listener 로 전달된다.
+     * 모든 질의는 같은 버전을 보며, listener 는 여러 작업 스레드에서 동시에 호출될 수 있다.
+     */
+    public void findMatchProfiles(List<Criteria> queries, List<? extends MatchListener> listeners) {
+        if (queries.size() != listeners.size()) {
+            throw new IllegalArgumentException(
+                String.format("질의 수(%d)와 listener 수(%d)가 다릅니다.", queries.size(), listeners.size()));
+        }
+        long start = System.nanoTime();
+        StoreVersion store = readVersion();
+        MatchPlan[] plans = queries.stream().map(criteria -> MatchPlan.compile(criteria, mustMatchOrders)).toArray(MatchPlan[]::new);
+        SharedScan scan = new SharedScan(store, plans, listeners.stream().map(metrics::timed).toList());
+        try {
+            runChunks(store.segmentCount(), segment -> {
+                scan.scanSegment(segment);
+                return null;
+            });
+            metrics.recordEvaluated((long) store.size() * plans.length);
+        } finally {
+            metrics.recordQuery(start);
+        }
+    }
+
+    /**
+     * 매칭된 MatchSet 을 profile id 순으로 반환한다. 반환된 목록은 변경할 수 없다.
+     * 청크별 지역 버퍼를 정렬된 상태로 병합하므로, 스레드 수와 상관없이 항상 같은 순서가 나온다.
+     * <p>
+     * 같은 조건 묶음(CriteriaFingerprint)의 결과는 캐시한다.
+     * 그 사이 발행된 버전이 없다면 캐시된 결과를 그대로 반환하고, (지표에는 다시 평가한 것과 똑같이 기록한다)
+     * 있다면 바뀐 세그먼트만 다시 평가하고 나머지 세그먼트는 캐시된 결과를 다시 쓴다.
+     */
+    public List<MatchSet> findMatches(Criteria criteria) {
+        long start = System.nanoTime();
+        try {
+            return findMatches(readVersion(), criteria);
+        } finally {
+            metrics.recordQuery(start);
+        }
+    }
+
+    private List<MatchSet> findMatches(StoreVersion store, Criteria criteria) {
+        CriteriaFingerprint key = criteria.fingerprint();
+        MatchCache.Entry cached = resultCache.get(key);
+        if (cached != null && cached.isFor(store)) {
+            metrics.recordEvaluated(store.size());
+            metrics.recordMatches(cached.matches().size());
+            return cached.matches();
+        }
+        MatchPlan plan = MatchPlan.compile(criteria, mustMatchOrders);
+        List<List<MatchSet>> bySegment = runChunks(store.segmentCount(), segment ->
+            cached != null && cached.covers(store, segment)
+                ? cached.segmentMatches(segment)
+                : PartitionedMatchTask.matchSegment(store, plan, segment));
+        List<MatchSet> matches = Collections.unmodifiableList(PartitionedMatchTask.mergeAll(bySegment));
+        resultCache.put(key, new MatchCache.Entry(store, bySegment, matches));
+        metrics.recordEvaluated(store.size());
+        metrics.recordMatches(matches.size());
+        return matches;
+    }
+
+    private List<MatchSet> findMatches(StoreVersion store, MatchPlan plan) {
+        int segmentCount = store.segmentCount();
+        if (mode == ExecutionMode.FORK_JOIN) {
+            checkOpen();
+            try {
+                return ((ForkJoinPool) executors).invoke(new PartitionedMatchTask(store, plan, 0, segmentCount));
+            } catch (RejectedExecutionException e) {
+                throw closedError(e);
+            }
+        }
+        return PartitionedMatchTask.mergeAll(
+            runChunks(segmentCount, segment -> PartitionedMatchTask.matchSegment(store, plan, segment)));
+    }
+
+    /**
+     * 모든 프로필의 점수를 ordinal 순서로 반환한다. (일괄 재채점용)
+     * 프로필마다 조건을 훑는 대신, 조건 하나를 세그먼트 전체에 적용하는 ScoringKernel 로 계산한다.
+     */
+    public long[] scoreAll(Criteria criteria) {
+        long start = System.nanoTime();
+        StoreVersion store = readVersion();
+        MatchPlan plan = MatchPlan.compile(criteria, mustMatchOrders);
+        int segmentCount = store.segmentCount();
+        long[] scores = new long[segmentCount << Segment.SHIFT];
+        try {
+            runChunks(segmentCount, segment -> {
+                scoringKernel.scoreSegment(plan, store.segment(segment), scores, segment << Segment.SHIFT);
+                return null;
+            });
+            metrics.recordEvaluated(store.size());
+            return Arrays.copyOf(scores, store.ordinalLimit());
+        } finally {
+            metrics.recordQuery(start);
+        }
+    }
+
+    /**
+     * 점수가 가장 높은 k 개의 매칭을 점수 내림차순으로 반환한다.
+     * 청크별로 크기 k 의 최소 힙을 채운 뒤 마지막에 합친다.
+     */
+    public List<MatchSet> topMatches(Criteria criteria, int k) {
+        long start = System.nanoTime();
+        StoreVersion store = readVersion();
+        MatchPlan plan = MatchPlan.compile(criteria, mustMatchOrders);
+        try {
+            List<MatchSet> top = runChunks(store.segmentCount(), segment -> {
+                TopMatches chunkTop = new TopMatches(k);
+                int matched = 0;
+                for (int ordinal : store.mustMatchCandidates(plan, segment)) {
+                    if (offerIfMatches(chunkTop, store, plan, ordinal)) {
+                        matched++;
+                    }
+                }
+                metrics.recordMatches(matched);
+                return chunkTop;
+            }).stream()
+                .reduce(new TopMatches(k), TopMatches::merge)
+                .toList();
+            metrics.recordEvaluated(store.size());
+            return top;
+        } finally {
+            metrics.recordQuery(start);
+        }
+    }
+
+    private static boolean offerIfMatches(TopMatches top, StoreVersion store, MatchPlan plan, int ordinal) {
+        ChoiceLookup row = store.row(ordinal);
+        MatchResult result = plan.evaluate(store.idOf(ordinal), row);
+        if (result.isMatched()) {
+            top.offer(new MatchSet(ordinal, result, plan, row));
+        }
+        return result.isMatched();
+    }
+
+    /**
+     * 청크 하나 동안 listener 가 그 청크 전용으로 내준 listener 로 매칭을 전달하고, 청크가 끝나면 돌려준다.
+     */
+    private static <T> T inChunk(MatchListener listener, Function<MatchListener, T> body) {
+        MatchListener chunkListener = listener.forChunk();
+        try {
+            return body.apply(chunkListener);
+        } finally {
+            listener.chunkFinished(chunkListener);
+        }
+    }
+
+    /**
+     * 청크마다 작업을 하나씩 제출하고, 청크 순서대로 결과를 모아 반환한다.
+     * 구조적 동시성처럼 질의가 띄운 작업은 모두 질의 안에서 끝난다.
+     * 하나라도 실패하면 나머지 청크를 취소하고 예외를 그대로 던진다.
+     */
+    private <T> List<T> runChunks(int chunkCount, IntFunction<T> task) {
+        checkOpen();
+        List<Future<T>> futures = new ArrayList<>(chunkCount);
+        try {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                int index = chunk;
+                futures.add(submit(() -> task.apply(index)));
+            }
+            List<T> results = new ArrayList<>(chunkCount);
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+            return results;
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    /**
+     * 제출한 뒤 실행되기까지 기다린 시간과 청크 실행 시간을 따로 기록한다.
+     */
+    private <T> Future<T> submit(Callable<T> chunk) {
+        long submitted = System.nanoTime();
+        Callable<T> task = () -> {
+            long start = System.nanoTime();
+            metrics.recordQueueWait(submitted, start);
+            try {
+                return chunk.call();
+            } finally {
+                metrics.recordChunk(start);
+            }
+        };
+        try {
+            return executors.submit(task);
+        } catch (RejectedExecutionException e) {
+            if (executors.isShutdown()) {
+                throw closedError(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 닫힌 뒤의 질의는 실행기에 제출하기 전에 거절한다. close() 와 겹친 제출은 실행기가 거절한다.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw closedError(null);
+        }
+    }
+
+    private static IllegalStateException closedError(RejectedExecutionException cause) {
+        return new IllegalStateException("닫힌 ProfileMatcher 입니다.", cause);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("매칭 작업을 기다리는 중 인터럽트 되었습니다.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
     List<MatchSet> collectMatchSets(Criteria criteria) {
-        return profiles.values().stream()
-            .map(p -> p.getMatchSet(criteria))
+        StoreVersion store = readVersion();
+        MatchPlan plan = MatchPlan.compile(criteria, mustMatchOrders);
+        return IntStream.range(0, store.ordinalLimit())
+            .filter(ordinal -> store.idOf(ordinal) != null)
+            .mapToObj(ordinal -> new MatchSet(ordinal, store.idOf(ordinal), plan, store.row(ordinal)))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * MustMatch 비트맵 교집합을 통과한 프로필에 대해서만 MatchSet 을 만든다.
+     */
+    List<MatchSet> collectCandidateMatchSets(Criteria criteria) {
+        StoreVersion store = readVersion();
+        MatchPlan plan = MatchPlan.compile(criteria, mustMatchOrders);
+        return Arrays.stream(store.mustMatchCandidates(plan))
+            .mapToObj(ordinal -> new MatchSet(ordinal, store.idOf(ordinal), plan, store.row(ordinal)))
             .collect(Collectors.toList());
     }
 
     void process(MatchListener listener, MatchSet matchSet) {
+        process(readVersion(), listener, matchSet);
+    }
+
+    /**
+     * 저장소에서 만든 MatchSet 은 ordinal 로 Profile 을 찾는다.
+     * id 표는 버전끼리 공유하므로, 질의 도중 같은 id 가 삭제 / 재추가되면 id 로는 질의가 읽은 행을 찾을 수 없다.
+     */
+    private static void process(StoreVersion store, MatchListener listener, MatchSet matchSet) {
         if (matchSet.matches()) {
-            listener.foundMatch(profiles.get(matchSet.getProfileId()), matchSet);
+            Profile profile = matchSet.ordinal() >= 0
+                ? store.profile(matchSet.ordinal())
+                : store.profile(matchSet.getProfileId());
+            listener.foundMatch(profile, matchSet);
+        }
+    }
+
+    /**
+     * 진행 중인 청크는 마저 처리하고 스레드풀을 정리한다. 로그가 열려 있다면 남은 레코드를 기록하고 닫는다.
+     * 지표를 MBean 으로 등록했다면 등록을 해제한다. 닫은 뒤의 질의는 IllegalStateException 으로 거절한다.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executors.shutdown();
+        try {
+            if (!executors.awaitTermination(30, TimeUnit.SECONDS)) {
+                executors.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executors.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        metrics.unregister();
+        synchronized (mutations) {
+            try {
+                closeLog();
+            } catch (IOException e) {
+                throw new IllegalStateException("로그를 닫지 못했습니다.", e);
+            }
         }
     }
 }
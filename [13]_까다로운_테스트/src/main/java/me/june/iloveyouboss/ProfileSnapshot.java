@@ -0,0 +1,411 @@
+package me.june.iloveyouboss;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * ProfileStore 를 바이너리 스냅샷 파일로 저장하고, 다시 열 때는 파일을 읽기 전용으로 매핑한다.
+ * 재시작할 때마다 Profile / Answer / Question 객체를 원본 데이터에서 다시 만드는 대신,
+ * 질문 목록과 id 표만 읽고 비트 컬럼은 매핑된 버퍼를 그대로 사용하므로 바로 질의를 시작할 수 있다.
+ * <pre>
+ * 헤더 (32 바이트) : MAGIC, VERSION, 메타데이터 길이, 예약, 메타데이터 CRC32C, 컬럼 데이터 CRC32C
+ * 메타데이터      : 질문 목록, profile id 표, 세그먼트별 present 비트맵과 컬럼 목록 (질문 id, 선택지별 답변 수, 데이터 위치)
+ * 컬럼 데이터     : 8 바이트 경계부터 컬럼마다 answered 비트맵, 비트 평면 순서로 long 을 이어서 기록
+ * </pre>
+ * MappedByteBuffer 하나로는 2GB 까지만 매핑할 수 있으므로, 컬럼 데이터는 REGION_BYTES 이하의 구간으로 나누어 매핑한다.
+ * open() 은 메타데이터와 컬럼 데이터 체크섬을 모두 확인한다.
+ * 컬럼 데이터를 끝까지 읽는 시간을 아끼려면 open(file, false) 로 메타데이터만 확인하고 열 수 있다.
+ */
+public final class ProfileSnapshot {
+
+    static final int MAGIC = 0x494C5942;
+    static final int VERSION = 3;
+    static final long REGION_BYTES = 1L << 30;
+    private static final int HEADER_SIZE = 32;
+    private static final int CHECKSUM_CHUNK = 1 << 16;
+
+    private static final byte BOOLEAN_QUESTION = 'B';
+    private static final byte PERCENTILE_QUESTION = 'P';
+
+    private ProfileSnapshot() {
+    }
+
+    /**
+     * 같은 디렉터리의 임시 파일에 모두 기록한 뒤 file 로 옮기고 디렉터리까지 fsync 하므로,
+     * 쓰는 도중 실패하거나 전원이 나가도 기존 스냅샷과 새 스냅샷 중 하나가 온전히 남는다.
+     */
+    public static void write(ProfileStore store, Path file) throws IOException {
+        write(store.current(), file);
+    }
+
+    /**
+     * 발행된 버전은 바뀌지 않으므로, 쓰는 동안에도 저장소에 계속 추가 / 변경할 수 있다.
+     */
+    public static void write(StoreVersion store, Path file) throws IOException {
+        byte[] meta = metadataOf(store);
+        int dataOffset = Math.toIntExact(align(HEADER_SIZE + (long) meta.length));
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName() + ".", ".tmp");
+        try {
+            writeTo(temp, store, meta, dataOffset);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        forceDirectory(directory);
+    }
+
+    private static void writeTo(Path temp, StoreVersion store, byte[] meta, int dataOffset) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32C dataChecksum = new CRC32C();
+            channel.position(dataOffset);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), dataChecksum), 1 << 16));
+            writeColumns(store, out);
+            out.flush();
+
+            CRC32C metaChecksum = new CRC32C();
+            metaChecksum.update(meta);
+            ByteBuffer head = ByteBuffer.allocate(dataOffset)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(meta.length)
+                .putInt(0)
+                .putLong(metaChecksum.getValue())
+                .putLong(dataChecksum.getValue())
+                .put(meta);
+            head.clear();
+            while (head.hasRemaining()) {
+                channel.write(head, head.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 이름을 바꾼 디렉터리 항목까지 디스크에 내려야 옮긴 파일이 전원이 나간 뒤에도 남는다.
+     * 디렉터리를 채널로 열 수 없는 플랫폼(Windows)에서는 파일 시스템이 옮기기를 바로 기록하므로 건너뛴다.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private static byte[] metadataOf(StoreVersion store) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        List<Question> questions = new ArrayList<>();
+        store.forEachQuestion((id, question) -> questions.add(question));
+        out.writeInt(questions.size());
+        for (Question question : questions) {
+            writeQuestion(question, out);
+        }
+
+        out.writeInt(store.ordinalLimit());
+        for (int ordinal = 0; ordinal < store.ordinalLimit(); ordinal++) {
+            writeString(store.idOf(ordinal), out);
+        }
+
+        out.writeInt(store.segmentCount());
+        long dataIndex = 0;
+        for (int s = 0; s < store.segmentCount(); s++) {
+            Segment segment = store.segment(s);
+            for (int word = 0; word < Segment.WORDS; word++) {
+                out.writeLong(segment.presentWord(word));
+            }
+            List<Integer> questionIds = columnIdsOf(segment);
+            out.writeInt(questionIds.size());
+            for (int questionId : questionIds) {
+                ColumnView column = segment.column(questionId);
+                out.writeInt(questionId);
+                for (int choice = 0; choice < column.choiceCount(); choice++) {
+                    out.writeInt(column.count(choice));
+                }
+                out.writeLong(dataIndex);
+                dataIndex += MappedAnswerColumn.wordsOf(column.choiceCount());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static void writeQuestion(Question question, DataOutput out) throws IOException {
+        out.writeInt(question.getId());
+        if (question instanceof BooleanQuestion) {
+            out.writeByte(BOOLEAN_QUESTION);
+        } else if (question instanceof PercentileQuestion) {
+            out.writeByte(PERCENTILE_QUESTION);
+        } else {
+            throw new IllegalArgumentException("스냅샷에 저장할 수 없는 질문 유형입니다: " + question.getClass().getName());
+        }
+        writeString(question.getText(), out);
+        out.writeInt(question.getAnswerChoiceCount());
+        for (int choice = 0; choice < question.getAnswerChoiceCount(); choice++) {
+            writeString(question.getAnswerChoice(choice), out);
+        }
+    }
+
+    private static void writeColumns(StoreVersion store, DataOutputStream out) throws IOException {
+        for (int s = 0; s < store.segmentCount(); s++) {
+            Segment segment = store.segment(s);
+            for (int questionId : columnIdsOf(segment)) {
+                ColumnView column = segment.column(questionId);
+                for (int word = 0; word < Segment.WORDS; word++) {
+                    out.writeLong(column.answeredWord(word));
+                }
+                for (int b = 0; b < column.width(); b++) {
+                    for (int word = 0; word < Segment.WORDS; word++) {
+                        out.writeLong(column.planeWord(b, word));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 스냅샷을 읽기 전용으로 매핑해 ProfileStore 로 복원한다.
+     * 컬럼은 매핑된 버퍼를 직접 읽고, 변경되는 컬럼만 그때 힙으로 복사된다.
+     */
+    public static ProfileStore open(Path file) throws IOException {
+        return open(file, true);
+    }
+
+    /**
+     * @param verifyData false 면 메타데이터 체크섬만 확인한다. 컬럼 데이터가 깨졌으면 질의 결과가 틀릴 수 있다.
+     */
+    public static ProfileStore open(Path file, boolean verifyData) throws IOException {
+        return open(file, verifyData, REGION_BYTES);
+    }
+
+    static ProfileStore open(Path file, boolean verifyData, long regionBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, file);
+            int metaLength = header.getInt(8);
+            ByteBuffer meta = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, metaLength);
+            if (checksumOf(meta) != header.getLong(16)) {
+                throw new IOException("스냅샷 메타데이터 체크섬이 맞지 않습니다: " + file);
+            }
+            long dataOffset = align(HEADER_SIZE + (long) metaLength);
+            if (verifyData && checksumOf(channel, dataOffset, channel.size(), ByteBuffer.allocateDirect(CHECKSUM_CHUNK))
+                != header.getLong(24)) {
+                throw new IOException("스냅샷 컬럼 데이터 체크섬이 맞지 않습니다: " + file);
+            }
+            DataRegions data = new DataRegions(channel, dataOffset, regionBytes);
+            try {
+                return readStore(meta, data);
+            } catch (RuntimeException e) {
+                throw new IOException("스냅샷 메타데이터를 읽을 수 없습니다: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * 메타데이터와 컬럼 데이터의 체크섬을 모두 확인한다.
+     * 파일 전체를 매핑하지 않고 작은 버퍼 하나로 끝까지 읽으므로, 스냅샷 크기와 상관없이 확인할 수 있다.
+     */
+    public static void verify(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, file);
+            int metaLength = header.getInt(8);
+            long dataOffset = align(HEADER_SIZE + (long) metaLength);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHECKSUM_CHUNK);
+            if (checksumOf(channel, HEADER_SIZE, HEADER_SIZE + (long) metaLength, chunk) != header.getLong(16)
+                || checksumOf(channel, dataOffset, channel.size(), chunk) != header.getLong(24)) {
+                throw new IOException("스냅샷 체크섬이 맞지 않습니다: " + file);
+            }
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("스냅샷 파일이 아닙니다: " + file);
+            }
+        }
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("스냅샷 파일이 아닙니다: " + file);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException(String.format("지원하지 않는 스냅샷 버전입니다: %d (%s)", header.getInt(4), file));
+        }
+        int metaLength = header.getInt(8);
+        if (metaLength < 0 || align(HEADER_SIZE + (long) metaLength) > channel.size()) {
+            throw new IOException("스냅샷 파일이 잘렸습니다: " + file);
+        }
+        return header;
+    }
+
+    private static ProfileStore readStore(ByteBuffer meta, DataRegions data) throws IOException {
+        QuestionTable<Question> questions = new QuestionTable<>();
+        int questionCount = meta.getInt();
+        for (int i = 0; i < questionCount; i++) {
+            Question question = readQuestion(meta);
+            questions.put(question.getId(), question);
+        }
+
+        int ordinalLimit = meta.getInt();
+        String[] ids = new String[ordinalLimit];
+        for (int ordinal = 0; ordinal < ordinalLimit; ordinal++) {
+            ids[ordinal] = readString(meta);
+        }
+
+        Segment[] segments = new Segment[meta.getInt()];
+        for (int s = 0; s < segments.length; s++) {
+            long[] present = new long[Segment.WORDS];
+            meta.asLongBuffer().get(present);
+            meta.position(meta.position() + Segment.WORDS * Long.BYTES);
+            QuestionTable<ColumnView> columns = new QuestionTable<>();
+            int columnCount = meta.getInt();
+            for (int c = 0; c < columnCount; c++) {
+                int questionId = meta.getInt();
+                int[] counts = new int[questions.get(questionId).getAnswerChoiceCount()];
+                for (int choice = 0; choice < counts.length; choice++) {
+                    counts[choice] = meta.getInt();
+                }
+                columns.put(questionId, data.column(counts, meta.getLong()));
+            }
+            String[] segmentIds = Arrays.copyOfRange(ids, s << Segment.SHIFT, (s + 1) << Segment.SHIFT);
+            segments[s] = new Segment(present, segmentIds, columns);
+        }
+        return new ProfileStore(questions, segments, ordinalLimit);
+    }
+
+    static Question readQuestion(ByteBuffer meta) throws IOException {
+        int id = meta.getInt();
+        byte type = meta.get();
+        String text = readString(meta);
+        String[] choices = new String[meta.getInt()];
+        for (int choice = 0; choice < choices.length; choice++) {
+            choices[choice] = readString(meta);
+        }
+        if (type == BOOLEAN_QUESTION) {
+            return new BooleanQuestion(id, text);
+        }
+        if (type == PERCENTILE_QUESTION) {
+            return new PercentileQuestion(id, text, choices);
+        }
+        throw new IOException("알 수 없는 질문 유형입니다: " + type);
+    }
+
+    /**
+     * 길이 + UTF-8 바이트로 기록한다. null 은 길이 -1 로 기록한다. (삭제된 프로필의 id)
+     */
+    static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer meta) {
+        int length = meta.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        meta.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 메타데이터와 컬럼 데이터는 이 순서대로 컬럼을 기록한다.
+     */
+    private static List<Integer> columnIdsOf(Segment segment) {
+        List<Integer> questionIds = new ArrayList<>(segment.columnCount());
+        segment.forEachColumn((questionId, column) -> questionIds.add(questionId));
+        return questionIds;
+    }
+
+    private static long checksumOf(ByteBuffer bytes) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes.duplicate());
+        return checksum.getValue();
+    }
+
+    private static long checksumOf(FileChannel channel, long from, long to, ByteBuffer chunk) throws IOException {
+        CRC32C checksum = new CRC32C();
+        long position = from;
+        while (position < to) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), to - position));
+            int read = channel.read(chunk, position);
+            if (read < 0) {
+                throw new IOException("스냅샷 파일이 잘렸습니다.");
+            }
+            chunk.flip();
+            checksum.update(chunk);
+            position += read;
+        }
+        return checksum.getValue();
+    }
+
+    private static long align(long position) {
+        return (position + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    /**
+     * 컬럼 데이터를 regionBytes 이하의 구간으로 나누어 매핑한다.
+     * 컬럼이 구간 경계에 걸치지 않도록 컬럼 단위로 끊고, 메타데이터에 기록된 순서대로 구간을 차례로 연다.
+     * 매핑은 채널을 닫은 뒤에도 유효하다.
+     */
+    private static final class DataRegions {
+
+        private final FileChannel channel;
+        private final long dataOffset;
+        private final long dataWords;
+        private final long regionWords;
+        private LongBuffer region;
+        private long regionStart;
+
+        DataRegions(FileChannel channel, long dataOffset, long regionBytes) throws IOException {
+            this.channel = channel;
+            this.dataOffset = dataOffset;
+            this.dataWords = (channel.size() - dataOffset) / Long.BYTES;
+            this.regionWords = Math.min(regionBytes, Integer.MAX_VALUE) / Long.BYTES;
+        }
+
+        MappedAnswerColumn column(int[] counts, long base) throws IOException {
+            int words = MappedAnswerColumn.wordsOf(counts.length);
+            if (base < 0 || base + words > dataWords) {
+                throw new IOException("스냅샷 컬럼 데이터가 잘렸습니다.");
+            }
+            if (region == null || base < regionStart || base + words > regionStart + region.capacity()) {
+                long length = Math.max(words, Math.min(regionWords, dataWords - base));
+                region = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + base * Long.BYTES, length * Long.BYTES)
+                    .asLongBuffer();
+                regionStart = base;
+            }
+            return new MappedAnswerColumn(counts, region, (int) (base - regionStart));
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package me.june.iloveyouboss;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ProfileMatcher 뒤에서 프로필을 컬럼 형태로 저장하는 저장소
+ * Profile 마다 HashMap<String, Answer> 와 Answer 객체를 들고 있는 대신,
+ * 프로필에 0 부터 시작하는 ordinal 을 부여하고 질문별 비트 컬럼(AnswerColumn)에 선택지만 기록한다.
+ * Profile / Answer 객체는 필요할 때만 컬럼에서 다시 만들어 낸다.
+ * <p>
+ * 쓰기는 한 번에 한 스레드만 하고, 변경이 끝나면 새 StoreVersion 을 발행한다.
+ * 발행된 세그먼트는 고치지 않고 복사본을 고치므로 (copy-on-write), 읽는 쪽은 락 없이 current() 로 얻은 버전을 읽는다.
+ * 조회 메서드는 가장 최근에 발행된 버전을 읽는다.
+ */
+public class ProfileStore {
+
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final BitSet freeOrdinals = new BitSet();
+    private final BitSet ownedSegments = new BitSet();
+    private QuestionTable<Question> questions;
+    private Segment[] segments;
+    private int ordinalLimit;
+    private long versionNumber;
+    private volatile StoreVersion current;
+
+    public ProfileStore() {
+        this(new QuestionTable<>(), new Segment[0], 0);
+    }
+
+    /**
+     * ProfileSnapshot 에서 읽어 들인 질문 목록과 세그먼트로 저장소를 복원한다.
+     * ordinalLimit 보다 작은 ordinal 중 id 가 없는 칸은 삭제된 프로필의 ordinal 이다.
+     */
+    ProfileStore(QuestionTable<Question> questions, Segment[] segments, int ordinalLimit) {
+        this.questions = questions;
+        this.segments = segments;
+        this.ordinalLimit = ordinalLimit;
+        for (int ordinal = 0; ordinal < ordinalLimit; ordinal++) {
+            String id = segmentOf(ordinal).idAt(offsetOf(ordinal));
+            if (id == null) {
+                freeOrdinals.set(ordinal);
+            } else {
+                ordinals.put(id, ordinal);
+            }
+        }
+        publish();
+    }
+
+    /**
+     * 가장 최근에 발행된 버전. 질의 하나는 버전 하나만 읽어야 일관된 결과를 얻는다.
+     */
+    public StoreVersion current() {
+        return current;
+    }
+
+    /**
+     * 같은 id 의 프로필이 이미 있다면 기존 답변을 모두 지우고 새 답변으로 덮어쓴다.
+     */
+    public synchronized int add(Profile profile) {
+        int ordinal = put(profile);
+        publish();
+        return ordinal;
+    }
+
+    /**
+     * 여러 프로필을 추가하고 버전은 한 번만 발행한다.
+     *
+     * @return 추가한 순서대로 부여된 ordinal
+     */
+    public synchronized int[] addAll(Collection<Profile> batch) {
+        int[] added = batch.stream().mapToInt(this::put).toArray();
+        publish();
+        return added;
+    }
+
+    /**
+     * 이미 저장된 프로필의 답변 하나만 바꾼다.
+     */
+    public synchronized int update(String profileId, Answer answer) {
+        int ordinal = set(profileId, answer);
+        publish();
+        return ordinal;
+    }
+
+    /**
+     * 프로필의 답변을 지우고 ordinal 을 반납한다. 반납된 ordinal 은 다음에 추가되는 프로필이 다시 사용한다.
+     *
+     * @return 저장된 프로필이었다면 true
+     */
+    public synchronized boolean remove(String profileId) {
+        boolean removed = delete(profileId);
+        publish();
+        return removed;
+    }
+
+    /**
+     * 발행하지 않고 변경만 한다. (로그 재적용처럼 여러 변경을 모아 한 번에 발행할 때)
+     */
+    synchronized int put(Profile profile) {
+        Integer existing = ordinals.get(profile.getId());
+        int ordinal = existing != null ? existing : allocate(profile.getId());
+        Segment segment = ownedSegmentOf(ordinal);
+        int offset = offsetOf(ordinal);
+        segment.clearAnswers(offset);
+        for (Answer answer : profile.getAnswers().values()) {
+            if (isValidChoice(answer)) {
+                register(answer.getCharacteristic());
+                segment.set(offset, answer.getCharacteristic(), answer.getChoice());
+            }
+        }
+        return ordinal;
+    }
+
+    /**
+     * 발행하지 않고 여러 프로필을 추가한다. 배치 전체를 한 번에 반영하므로, 그 사이의 발행은 배치의 일부만 보지 않는다.
+     */
+    synchronized int[] putAll(Collection<Profile> batch) {
+        return batch.stream().mapToInt(this::put).toArray();
+    }
+
+    synchronized int set(String profileId, Answer answer) {
+        Integer ordinal = ordinals.get(profileId);
+        if (ordinal == null) {
+            throw new IllegalArgumentException("저장되지 않은 프로필입니다: " + profileId);
+        }
+        Segment segment = ownedSegmentOf(ordinal);
+        if (isValidChoice(answer)) {
+            register(answer.getCharacteristic());
+            segment.set(offsetOf(ordinal), answer.getCharacteristic(), answer.getChoice());
+        } else {
+            segment.clearAnswer(offsetOf(ordinal), answer.getCharacteristic().getId());
+        }
+        return ordinal;
+    }
+
+    /**
+     * 질문에 없는 선택지(텍스트로 만든 Answer 의 -1 등)는 Profile.choiceOf 와 마찬가지로 답하지 않은 것으로 본다.
+     */
+    static boolean isValidChoice(Answer answer) {
+        return answer.getChoice() >= 0 && answer.getChoice() < answer.getCharacteristic().getAnswerChoiceCount();
+    }
+
+    /**
+     * 아직 발행하지 않은 변경까지 포함해 profileId 가 저장되어 있는지 확인한다.
+     */
+    synchronized boolean contains(String profileId) {
+        return ordinals.containsKey(profileId);
+    }
+
+    synchronized boolean delete(String profileId) {
+        Integer ordinal = ordinals.remove(profileId);
+        if (ordinal == null) {
+            return false;
+        }
+        Segment segment = ownedSegmentOf(ordinal);
+        segment.clearAnswers(offsetOf(ordinal));
+        segment.clearPresent(offsetOf(ordinal));
+        freeOrdinals.set(ordinal);
+        return true;
+    }
+
+    /**
+     * 지금까지의 변경을 새 버전으로 발행한다. 발행된 세그먼트는 이후 다시 복사한 뒤에만 고친다.
+     */
+    synchronized StoreVersion publish() {
+        ownedSegments.clear();
+        int segmentCount = (ordinalLimit + Segment.SIZE - 1) >>> Segment.SHIFT;
+        current = new StoreVersion(++versionNumber, Arrays.copyOf(segments, segmentCount), questions,
+            ordinalLimit, ordinals.size(), ordinals);
+        return current;
+    }
+
+    private int allocate(String id) {
+        int ordinal = freeOrdinals.isEmpty() ? ordinalLimit : freeOrdinals.nextSetBit(0);
+        int segmentIndex = ordinal >>> Segment.SHIFT;
+        if (segmentIndex >= segments.length) {
+            segments = Arrays.copyOf(segments, Math.max(segmentIndex + 1, segments.length * 2));
+        }
+        if (segments[segmentIndex] == null) {
+            segments[segmentIndex] = new Segment();
+            ownedSegments.set(segmentIndex);
+        }
+        ownedSegmentOf(ordinal).markPresent(offsetOf(ordinal), id);
+        freeOrdinals.clear(ordinal);
+        ordinalLimit = Math.max(ordinalLimit, ordinal + 1);
+        ordinals.put(id, ordinal);
+        return ordinal;
+    }
+
+    /**
+     * 발행된 버전과 공유하는 질문 목록은 고치지 않고, 새 질문이 생기면 복사해서 바꾼다.
+     * 같은 id 의 질문은 처음 등록된 인스턴스를 계속 사용한다.
+     */
+    private void register(Question question) {
+        if (questions.get(question.getId()) != null) {
+            return;
+        }
+        questions = questions.copy();
+        questions.put(question.getId(), question);
+    }
+
+    private Segment ownedSegmentOf(int ordinal) {
+        int segmentIndex = ordinal >>> Segment.SHIFT;
+        if (!ownedSegments.get(segmentIndex)) {
+            segments[segmentIndex] = segments[segmentIndex].copy();
+            ownedSegments.set(segmentIndex);
+        }
+        return segments[segmentIndex];
+    }
+
+    private Segment segmentOf(int ordinal) {
+        return segments[ordinal >>> Segment.SHIFT];
+    }
+
+    private static int offsetOf(int ordinal) {
+        return ordinal & (Segment.SIZE - 1);
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    public int ordinalOf(String profileId) {
+        return current.ordinalOf(profileId);
+    }
+
+    public String idOf(int ordinal) {
+        return current.idOf(ordinal);
+    }
+
+    public Question question(int questionId) {
+        return current.question(questionId);
+    }
+
+    public int choiceOf(int ordinal, int questionId) {
+        return current.choiceOf(ordinal, questionId);
+    }
+
+    public ChoiceLookup row(int ordinal) {
+        return current.row(ordinal);
+    }
+
+    public Profile profile(String profileId) {
+        return current.profile(profileId);
+    }
+
+    public Profile profile(int ordinal) {
+        return current.profile(ordinal);
+    }
+
+    public int[] mustMatchCandidates(MatchPlan plan) {
+        return current.mustMatchCandidates(plan);
+    }
+
+    int segmentCount() {
+        return current.segmentCount();
+    }
+
+    Segment segment(int index) {
+        return current.segment(index);
+    }
+}
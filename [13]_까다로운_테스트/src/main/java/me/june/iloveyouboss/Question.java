@@ -1,15 +1,46 @@
 package me.june.iloveyouboss;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public abstract class Question {
 
     private String text;
     private String[] answerChoices;
     private int id;
+    private Answer[] answers;
+    private Map<String, Integer> choiceIndexes;
 
     public Question(int id, String text, String[] answerChoices) {
         this.id = id;
         this.text = text;
         this.answerChoices = answerChoices;
+        this.answers = new Answer[answerChoices.length];
+        this.choiceIndexes = new HashMap<>();
+        for (int i = 0; i < answerChoices.length; i++) {
+            answers[i] = new Answer(this, i);
+            choiceIndexes.putIfAbsent(answerChoices[i], i);
+        }
+    }
+
+    /**
+     * 선택지마다 한 번만 만들어 둔 불변 Answer 를 공유한다. (플라이웨이트)
+     * 프로필마다 new Answer(...) 로 같은 답변을 계속 만들 필요가 없다.
+     */
+    public Answer answer(int choice) {
+        return answers[choice];
+    }
+
+    public Answer answer(String answerChoice) {
+        int choice = indexOf(answerChoice);
+        if (choice < 0) {
+            throw new IllegalArgumentException(String.format("%s 에 없는 선택지입니다: %s", text, answerChoice));
+        }
+        return answers[choice];
+    }
+
+    public int getId() {
+        return id;
     }
 
     public String getText() {
@@ -20,18 +51,20 @@ public abstract class Question {
         return answerChoices[i];
     }
 
+    public int getAnswerChoiceCount() {
+        return answerChoices.length;
+    }
+
     public boolean match(Answer answer) {
         return false;
     }
 
     abstract public boolean match(int expected, int actual);
 
+    /**
+     * 선택지 텍스트 -> 번호 해시 테이블을 생성자에서 미리 만들어 두므로, 선택지를 선형 탐색하지 않는다.
+     */
     public int indexOf(String matchingAnswerChoice) {
-        for (int i = 0; i < answerChoices.length; i++) {
-            if (answerChoices[i].equals(matchingAnswerChoice)) {
-                return i;
-            }
-        }
-        return -1;
+        return choiceIndexes.getOrDefault(matchingAnswerChoice, -1);
     }
 }
@@ -0,0 +1,96 @@
+package me.june.iloveyouboss;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 질문 id 를 키로 하는 표
+ * 0 이상 DENSE_LIMIT 미만의 id 는 배열 위치로 바로 찾고, 음수이거나 그보다 큰 id 는 맵에 따로 둔다.
+ * 질문 id 는 보통 0 부터 촘촘하게 붙지만, 어떤 int 든 질문 id 가 될 수 있으므로
+ * 드문드문한 큰 id 하나 때문에 거대한 배열을 만들거나 id + 1 이 넘치지 않도록 한다.
+ * 한 스레드만 고치고, 발행된 뒤에는 copy() 로 복사본을 고친다.
+ */
+final class QuestionTable<T> {
+
+    static final int DENSE_LIMIT = 1 << 16;
+
+    private Object[] dense;
+    private Map<Integer, T> sparse;
+
+    QuestionTable() {
+        this(new Object[0], null);
+    }
+
+    private QuestionTable(Object[] dense, Map<Integer, T> sparse) {
+        this.dense = dense;
+        this.sparse = sparse;
+    }
+
+    static boolean isDense(int questionId) {
+        return questionId >= 0 && questionId < DENSE_LIMIT;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int questionId) {
+        if (isDense(questionId)) {
+            return questionId < dense.length ? (T) dense[questionId] : null;
+        }
+        return sparse == null ? null : sparse.get(questionId);
+    }
+
+    void put(int questionId, T value) {
+        if (!isDense(questionId)) {
+            if (sparse == null) {
+                sparse = new HashMap<>();
+            }
+            sparse.put(questionId, value);
+            return;
+        }
+        if (questionId >= dense.length) {
+            dense = Arrays.copyOf(dense, Math.min(DENSE_LIMIT, Math.max(questionId + 1, dense.length * 2)));
+        }
+        dense[questionId] = value;
+    }
+
+    /**
+     * 값은 공유하고 표만 복사한다.
+     */
+    QuestionTable<T> copy() {
+        return new QuestionTable<>(dense.clone(), sparse == null ? null : new HashMap<>(sparse));
+    }
+
+    /**
+     * null 이 아닌 값의 수
+     */
+    int count() {
+        int count = sparse == null ? 0 : sparse.size();
+        for (Object value : dense) {
+            if (value != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * null 이 아닌 값을 배열에 있는 것부터 id 순서로, 그다음 맵에 있는 것을 넘긴다.
+     * 고치지 않은 같은 표는 몇 번을 훑어도 같은 순서다.
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(Visitor<? super T> visitor) {
+        for (int questionId = 0; questionId < dense.length; questionId++) {
+            if (dense[questionId] != null) {
+                visitor.visit(questionId, (T) dense[questionId]);
+            }
+        }
+        if (sparse != null) {
+            sparse.forEach(visitor::visit);
+        }
+    }
+
+    @FunctionalInterface
+    interface Visitor<T> {
+        void visit(int questionId, T value);
+    }
+}
@@ -0,0 +1,54 @@
+package me.june.iloveyouboss;
+
+/**
+ * 조건 하나를 세그먼트의 프로필 블록 전체에 한 번에 적용해 점수를 누적하는 커널
+ * 비트 평면에서 64 개 프로필의 매칭 비트마스크를 만든 뒤, 마스크가 켜진 칸에만 가중치를 더한다.
+ * jdk.incubator.vector 모듈이 있으면 Vector API 구현을, 없으면 스칼라 구현을 사용한다.
+ */
+abstract class ScoringKernel {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "me.june.iloveyouboss.VectorScoringKernel";
+
+    static ScoringKernel create() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (ScoringKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return new ScalarScoringKernel();
+            }
+        }
+        return new ScalarScoringKernel();
+    }
+
+    /**
+     * segment 에 속한 프로필의 점수를 scores[offset] 부터 차례대로 더한다.
+     * 결과는 MatchSet.getScore() 와 같다.
+     */
+    void scoreSegment(MatchPlan plan, Segment segment, long[] scores, int offset) {
+        for (int word = 0; word < Segment.WORDS; word++) {
+            int base = offset + (word << 6);
+            for (int k = 0; k < plan.size(); k++) {
+                long mask = plan.acceptMask(k, segment, word);
+                if (mask != 0) {
+                    addWeight(scores, base, mask, plan.getWeight(k));
+                }
+            }
+        }
+    }
+
+    /**
+     * scores[base + i] 에 mask 의 i 번째 비트가 켜져 있을 때만 weight 를 더한다. (0 <= i < 64)
+     */
+    abstract void addWeight(long[] scores, int base, long mask, long weight);
+
+    static class ScalarScoringKernel extends ScoringKernel {
+
+        @Override
+        void addWeight(long[] scores, int base, long mask, long weight) {
+            for (int i = 0; i < 64; i++) {
+                scores[base + i] += weight & -((mask >>> i) & 1L);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package me.june.iloveyouboss;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * ProfileStore 를 고정 크기로 나눈 조각
+ * 세그먼트마다 질문 id 별 컬럼(ColumnView)과 profile id 표를 가지며, 아직 답변이 없는 질문은 컬럼을 만들지 않는다.
+ * StoreVersion 으로 발행된 세그먼트는 바뀌지 않는다. 고칠 때는 copy() 로 복사본을 만들고,
+ * 복사본은 실제로 값을 바꾸는 컬럼만 그때 복사한다. (copy-on-write)
+ */
+class Segment {
+
+    static final int SHIFT = 12;
+    static final int SIZE = 1 << SHIFT;
+    static final int WORDS = SIZE >>> 6;
+
+    private final long[] present;
+    private final String[] ids;
+    private final QuestionTable<ColumnView> columns;
+    // 이 세그먼트가 만들거나 복사해 고쳐도 되는 컬럼
+    private final Set<ColumnView> ownedColumns = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    Segment() {
+        this(new long[WORDS], new String[SIZE], new QuestionTable<>());
+    }
+
+    Segment(long[] present, String[] ids, QuestionTable<ColumnView> columns) {
+        this.present = present;
+        this.ids = ids;
+        this.columns = columns;
+    }
+
+    /**
+     * 컬럼은 공유하고, 처음 값을 바꿀 때 복사한다.
+     */
+    Segment copy() {
+        return new Segment(present.clone(), ids.clone(), columns.copy());
+    }
+
+    boolean isPresent(int offset) {
+        return (present[offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    long presentWord(int word) {
+        return present[word];
+    }
+
+    String idAt(int offset) {
+        return ids[offset];
+    }
+
+    void markPresent(int offset, String id) {
+        present[offset >>> 6] |= 1L << offset;
+        ids[offset] = id;
+    }
+
+    void clearPresent(int offset) {
+        present[offset >>> 6] &= ~(1L << offset);
+        ids[offset] = null;
+    }
+
+    ColumnView column(int questionId) {
+        return columns.get(questionId);
+    }
+
+    int columnCount() {
+        return columns.count();
+    }
+
+    /**
+     * 답변이 있는 질문의 컬럼을 넘긴다. 같은 세그먼트는 고치기 전까지 항상 같은 순서로 넘긴다.
+     */
+    void forEachColumn(QuestionTable.Visitor<ColumnView> visitor) {
+        columns.forEach(visitor);
+    }
+
+    int choiceOf(int offset, int questionId) {
+        ColumnView column = column(questionId);
+        return column == null ? ChoiceLookup.UNANSWERED : column.get(offset);
+    }
+
+    void set(int offset, Question question, int choice) {
+        int questionId = question.getId();
+        if (columns.get(questionId) == null) {
+            AnswerColumn column = new AnswerColumn(question.getAnswerChoiceCount());
+            columns.put(questionId, column);
+            ownedColumns.add(column);
+        }
+        ownedColumn(questionId).set(offset, choice);
+    }
+
+    void clearAnswers(int offset) {
+        IntStream.Builder answered = IntStream.builder();
+        columns.forEach((questionId, column) -> {
+            if (column.get(offset) != ChoiceLookup.UNANSWERED) {
+                answered.add(questionId);
+            }
+        });
+        answered.build().forEach(questionId -> ownedColumn(questionId).clear(offset));
+    }
+
+    void clearAnswer(int offset, int questionId) {
+        ColumnView column = column(questionId);
+        if (column != null && column.get(offset) != ChoiceLookup.UNANSWERED) {
+            ownedColumn(questionId).clear(offset);
+        }
+    }
+
+    /**
+     * 이 세그먼트가 만든 컬럼만 AnswerColumn 이므로, 공유하던 컬럼은 먼저 힙으로 복사한다.
+     */
+    private AnswerColumn ownedColumn(int questionId) {
+        ColumnView column = columns.get(questionId);
+        if (!ownedColumns.contains(column)) {
+            column = column.mutableCopy();
+            columns.put(questionId, column);
+            ownedColumns.add(column);
+        }
+        return (AnswerColumn) column;
+    }
+}
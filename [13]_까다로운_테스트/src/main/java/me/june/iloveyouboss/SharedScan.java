@@ -0,0 +1,88 @@
+package me.june.iloveyouboss;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 여러 질의를 세그먼트 한 번 훑는 동안 함께 평가하는 공유 스캔
+ * 질의마다 전체 프로필을 다시 읽는 대신, 64 개 프로필 단위(word)로 돌면서
+ * 그 word 의 컬럼 데이터가 캐시에 올라와 있는 동안 모든 질의의 MustMatch 마스크와 점수를 계산한다.
+ * 세그먼트의 선택지별 답변 수로 걸러지는 질의는 그 세그먼트에서 아예 평가하지 않는다.
+ * 세그먼트 하나가 청크 하나이므로, 질의마다 그 세그먼트 동안 쓸 청크 전용 listener 를 받아 쓴다.
+ */
+class SharedScan {
+
+    private final StoreVersion store;
+    private final MatchPlan[] plans;
+    private final List<? extends MatchListener> listeners;
+
+    SharedScan(StoreVersion store, MatchPlan[] plans, List<? extends MatchListener> listeners) {
+        this.store = store;
+        this.plans = plans;
+        this.listeners = listeners;
+    }
+
+    void scanSegment(int segmentIndex) {
+        Segment segment = store.segment(segmentIndex);
+        int[] active = new int[plans.length];
+        int activeCount = 0;
+        for (int q = 0; q < plans.length; q++) {
+            if (plans[q].mayMatch(segment)) {
+                active[activeCount++] = q;
+            }
+        }
+        if (activeCount == 0) {
+            return;
+        }
+        int base = segmentIndex << Segment.SHIFT;
+        MatchPlan.Tally[] tallies = new MatchPlan.Tally[plans.length];
+        MatchListener[] chunkListeners = new MatchListener[plans.length];
+        for (int i = 0; i < activeCount; i++) {
+            tallies[active[i]] = plans[active[i]].newTally();
+        }
+        try {
+            scanWords(segment, base, active, activeCount, tallies, chunkListeners);
+        } finally {
+            for (int i = 0; i < activeCount; i++) {
+                int q = active[i];
+                if (chunkListeners[q] != null) {
+                    listeners.get(q).chunkFinished(chunkListeners[q]);
+                }
+            }
+        }
+        for (int i = 0; i < activeCount; i++) {
+            plans[active[i]].record(tallies[active[i]]);
+        }
+    }
+
+    private void scanWords(Segment segment, int base, int[] active, int activeCount, MatchPlan.Tally[] tallies,
+        MatchListener[] chunkListeners) {
+        Profile[] views = new Profile[64];
+        for (int word = 0; word < Segment.WORDS; word++) {
+            if (segment.presentWord(word) == 0) {
+                continue;
+            }
+            for (int i = 0; i < activeCount; i++) {
+                int q = active[i];
+                long mask = plans[q].mustMatchMask(segment, word, tallies[q]);
+                while (mask != 0) {
+                    int bit = Long.numberOfTrailingZeros(mask);
+                    mask &= mask - 1;
+                    int ordinal = base + (word << 6) + bit;
+                    ChoiceLookup row = store.row(ordinal);
+                    MatchResult result = plans[q].evaluate(store.idOf(ordinal), row);
+                    if (result.isMatched()) {
+                        if (views[bit] == null) {
+                            views[bit] = store.profile(ordinal);
+                        }
+                        if (chunkListeners[q] == null) {
+                            chunkListeners[q] = listeners.get(q).forChunk();
+                        }
+                        chunkListeners[q].foundMatch(views[bit], new MatchSet(ordinal, result, plans[q], row));
+                    }
+                }
+            }
+            Arrays.fill(views, null);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package me.june.iloveyouboss;
+
+/**
+ * ProfileMatcher 에 등록해 두는 상시 질의
+ * 프로필이 추가되거나 답변이 바뀔 때마다, 해당 프로필이 조건에 맞으면 listener 로 알린다.
+ */
+public final class StandingQuery {
+
+    private final MatchPlan plan;
+    private final MatchListener listener;
+
+    StandingQuery(Criteria criteria, MatchListener listener, MustMatchOrders orders) {
+        this.plan = MatchPlan.compile(criteria, orders);
+        this.listener = listener;
+    }
+
+    MatchPlan getPlan() {
+        return plan;
+    }
+
+    MatchListener getListener() {
+        return listener;
+    }
+}
@@ -0,0 +1,90 @@
+package me.june.iloveyouboss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 상시 질의를 MustMatch (질문, 선택지) 쌍으로 색인한 퍼콜레이터
+ * 프로필 하나가 바뀌면 모든 질의를 다시 돌리는 대신, 색인된 질문의 답변만 보고
+ * 모든 MustMatch 를 만족할 수 있는 질의만 후보로 골라낸다.
+ * 등록 / 해제는 드물기 때문에 색인 전체를 새로 만들어 교체하고, 조회하는 쪽은 락 없이 현재 색인을 읽는다.
+ */
+class StandingQueryIndex {
+
+    private final List<StandingQuery> queries = new ArrayList<>();
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+    private volatile boolean empty = true;
+
+    synchronized void register(StandingQuery query) {
+        queries.add(query);
+        snapshot = new Snapshot(queries);
+        empty = false;
+    }
+
+    synchronized void unregister(StandingQuery query) {
+        queries.remove(query);
+        snapshot = new Snapshot(queries);
+        empty = queries.isEmpty();
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * row 의 답변으로 모든 MustMatch 조건을 만족할 수 있는 질의
+     */
+    List<StandingQuery> candidates(ChoiceLookup row) {
+        return snapshot.candidates(row);
+    }
+
+    private static class Snapshot {
+
+        private final Map<Integer, Map<Integer, List<StandingQuery>>> byQuestionAndChoice = new HashMap<>();
+        private final Map<StandingQuery, Integer> mustMatchCounts = new IdentityHashMap<>();
+        private final List<StandingQuery> withoutMustMatch = new ArrayList<>();
+
+        Snapshot(List<StandingQuery> queries) {
+            for (StandingQuery query : queries) {
+                MatchPlan plan = query.getPlan();
+                int[] mustMatchIndexes = plan.mustMatchIndexes();
+                if (mustMatchIndexes.length == 0) {
+                    withoutMustMatch.add(query);
+                    continue;
+                }
+                mustMatchCounts.put(query, mustMatchIndexes.length);
+                for (int k : mustMatchIndexes) {
+                    Map<Integer, List<StandingQuery>> byChoice =
+                        byQuestionAndChoice.computeIfAbsent(plan.getSlot(k), id -> new HashMap<>());
+                    for (int choice : plan.acceptedChoices(k)) {
+                        byChoice.computeIfAbsent(choice, c -> new ArrayList<>()).add(query);
+                    }
+                }
+            }
+        }
+
+        List<StandingQuery> candidates(ChoiceLookup row) {
+            Map<StandingQuery, Integer> hits = new IdentityHashMap<>();
+            for (Map.Entry<Integer, Map<Integer, List<StandingQuery>>> entry : byQuestionAndChoice.entrySet()) {
+                int choice = row.choiceOf(entry.getKey());
+                if (choice == ChoiceLookup.UNANSWERED) {
+                    continue;
+                }
+                for (StandingQuery query : entry.getValue().getOrDefault(choice, Collections.emptyList())) {
+                    hits.merge(query, 1, Integer::sum);
+                }
+            }
+            List<StandingQuery> candidates = new ArrayList<>(withoutMustMatch);
+            hits.forEach((query, count) -> {
+                if (count.equals(mustMatchCounts.get(query))) {
+                    candidates.add(query);
+                }
+            });
+            return candidates;
+        }
+    }
+}
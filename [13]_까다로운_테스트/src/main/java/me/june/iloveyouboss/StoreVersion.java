@@ -0,0 +1,159 @@
+package me.june.iloveyouboss;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * ProfileStore 가 발행한 한 시점의 읽기 전용 버전
+ * 발행된 세그먼트와 컬럼은 다시 바뀌지 않으므로, 질의는 시작할 때 버전 하나를 잡고 락 없이 끝까지 같은 데이터를 본다.
+ * 그 사이에 들어온 추가 / 변경 / 삭제는 다음 버전에만 보인다.
+ */
+public final class StoreVersion {
+
+    private final long number;
+    private final Segment[] segments;
+    private final QuestionTable<Question> questions;
+    private final int ordinalLimit;
+    private final int size;
+    private final Map<String, Integer> ordinals;
+
+    StoreVersion(long number, Segment[] segments, QuestionTable<Question> questions, int ordinalLimit, int size,
+        Map<String, Integer> ordinals) {
+        this.number = number;
+        this.segments = segments;
+        this.questions = questions;
+        this.ordinalLimit = ordinalLimit;
+        this.size = size;
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * 발행될 때마다 1 씩 커지는 버전 번호
+     */
+    public long number() {
+        return number;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 지금까지 부여한 ordinal 의 상한 (삭제되어 비어 있는 ordinal 포함)
+     */
+    int ordinalLimit() {
+        return ordinalLimit;
+    }
+
+    /**
+     * id 색인은 버전끼리 공유하므로, 찾은 ordinal 이 이 버전에서도 같은 프로필인지 확인한다.
+     * 이 버전 이후 삭제 후 다시 추가된 프로필은 찾지 못할 수 있다.
+     */
+    public int ordinalOf(String profileId) {
+        Integer ordinal = ordinals.get(profileId);
+        if (ordinal == null || ordinal >= ordinalLimit || !profileId.equals(idOf(ordinal))) {
+            return -1;
+        }
+        return ordinal;
+    }
+
+    public String idOf(int ordinal) {
+        return segmentOf(ordinal).idAt(offsetOf(ordinal));
+    }
+
+    public Question question(int questionId) {
+        return questions.get(questionId);
+    }
+
+    /**
+     * 답변이 한 번이라도 기록된 질문을 넘긴다. 넘겨받은 쪽은 표를 고치지 않는다.
+     */
+    void forEachQuestion(QuestionTable.Visitor<Question> visitor) {
+        questions.forEach(visitor);
+    }
+
+    public int choiceOf(int ordinal, int questionId) {
+        return segmentOf(ordinal).choiceOf(offsetOf(ordinal), questionId);
+    }
+
+    /**
+     * ordinal 에 해당하는 프로필의 답변을 Profile 객체 없이 조회한다.
+     */
+    public ChoiceLookup row(int ordinal) {
+        Segment segment = segmentOf(ordinal);
+        int offset = offsetOf(ordinal);
+        return questionId -> segment.choiceOf(offset, questionId);
+    }
+
+    public Profile profile(String profileId) {
+        int ordinal = ordinalOf(profileId);
+        return ordinal < 0 ? null : profile(ordinal);
+    }
+
+    /**
+     * 컬럼에서 Profile / Answer 를 다시 조립한 읽기 전용 뷰
+     */
+    public Profile profile(int ordinal) {
+        Segment segment = segmentOf(ordinal);
+        int offset = offsetOf(ordinal);
+        Profile profile = new Profile(idOf(ordinal));
+        segment.forEachColumn((questionId, column) -> {
+            int choice = column.get(offset);
+            if (choice != ChoiceLookup.UNANSWERED) {
+                profile.add(questions.get(questionId).answer(choice));
+            }
+        });
+        return profile;
+    }
+
+    /**
+     * MustMatch 조건을 모두 만족하는 프로필의 ordinal 목록
+     * 세그먼트 단위로 먼저 걸러낸 뒤, 64 개 프로필 단위 비트 연산으로 후보를 추린다.
+     */
+    public int[] mustMatchCandidates(MatchPlan plan) {
+        IntStream.Builder candidates = IntStream.builder();
+        for (int s = 0; s < segmentCount(); s++) {
+            addMustMatchCandidates(plan, s, candidates);
+        }
+        return candidates.build().toArray();
+    }
+
+    int[] mustMatchCandidates(MatchPlan plan, int segmentIndex) {
+        IntStream.Builder candidates = IntStream.builder();
+        addMustMatchCandidates(plan, segmentIndex, candidates);
+        return candidates.build().toArray();
+    }
+
+    private void addMustMatchCandidates(MatchPlan plan, int segmentIndex, IntStream.Builder candidates) {
+        Segment segment = segments[segmentIndex];
+        if (!plan.mayMatch(segment)) {
+            return;
+        }
+        int base = segmentIndex << Segment.SHIFT;
+        MatchPlan.Tally tally = plan.newTally();
+        for (int word = 0; word < Segment.WORDS; word++) {
+            long mask = plan.mustMatchMask(segment, word, tally);
+            while (mask != 0) {
+                candidates.add(base + (word << 6) + Long.numberOfTrailingZeros(mask));
+                mask &= mask - 1;
+            }
+        }
+        plan.record(tally);
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    Segment segment(int index) {
+        return segments[index];
+    }
+
+    private Segment segmentOf(int ordinal) {
+        return segments[ordinal >>> Segment.SHIFT];
+    }
+
+    private static int offsetOf(int ordinal) {
+        return ordinal & (Segment.SIZE - 1);
+    }
+}
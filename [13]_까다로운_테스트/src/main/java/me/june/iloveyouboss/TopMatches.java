@@ -0,0 +1,48 @@
+package me.june.iloveyouboss;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 점수가 가장 높은 k 개의 MatchSet 만 유지하는 크기 제한 최소 힙
+ * 워커마다 하나씩 만들어 채운 뒤 merge 로 합치므로, 모든 매칭을 모아서 정렬할 필요가 없다.
+ */
+class TopMatches {
+
+    static final Comparator<MatchSet> BY_SCORE = Comparator
+        .comparingLong(MatchSet::getScore)
+        .thenComparing(MatchSet::getProfileId, Comparator.reverseOrder());
+
+    private final int k;
+    private final PriorityQueue<MatchSet> heap;
+
+    TopMatches(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.max(1, k), BY_SCORE);
+    }
+
+    void offer(MatchSet matchSet) {
+        if (heap.size() < k) {
+            heap.add(matchSet);
+        } else if (k > 0 && BY_SCORE.compare(matchSet, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(matchSet);
+        }
+    }
+
+    TopMatches merge(TopMatches other) {
+        other.heap.forEach(this::offer);
+        return this;
+    }
+
+    /**
+     * 점수 내림차순
+     */
+    List<MatchSet> toList() {
+        List<MatchSet> matches = new ArrayList<>(heap);
+        matches.sort(BY_SCORE.reversed());
+        return matches;
+    }
+}
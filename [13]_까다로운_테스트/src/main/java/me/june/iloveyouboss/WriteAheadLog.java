@@ -0,0 +1,398 @@
+package me.june.iloveyouboss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * 프로필 추가 / 답변 변경 / 삭제를 기록하는 추가 전용 로그 (write-ahead log)
+ * 레코드는 [길이][CRC32C][내용] 형식이고, 내용의 첫 바이트가 레코드 종류다.
+ * 변경마다 force() 를 호출하는 대신 그룹 커밋을 한다.
+ * append() 는 메모리 버퍼에 레코드를 붙이고 순번만 돌려주고, sync(순번) 를 호출한 스레드 중 하나가
+ * 그때까지 쌓인 레코드를 한 번에 쓰고 force() 한다. 나머지 스레드는 그 force() 가 끝나기를 기다린다.
+ */
+class WriteAheadLog implements AutoCloseable {
+
+    private static final byte QUESTION = 'Q';
+    private static final byte ADD = 'A';
+    private static final byte UPDATE = 'U';
+    private static final byte REMOVE = 'R';
+    private static final int FRAME_HEADER = 8;
+    private static final int READ_CHUNK = 1 << 20;
+    static final int MAX_RECORD_SIZE = 1 << 26;
+
+    private final FileChannel channel;
+    private final Set<Integer> loggedQuestions = new HashSet<>();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended;
+    private long durable;
+    private boolean flushing;
+    private IOException failure;
+
+    private WriteAheadLog(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 로그의 레코드를 store 에 차례로 적용한 뒤, 이어서 기록할 수 있도록 로그를 연다.
+     * 비정상 종료로 마지막 레코드가 잘렸거나 체크섬이 맞지 않으면 그 앞까지만 적용하고 나머지는 잘라 낸다.
+     */
+    static WriteAheadLog replay(Path file, ProfileStore store) throws IOException {
+        return replay(file, store, READ_CHUNK);
+    }
+
+    static WriteAheadLog replay(Path file, ProfileStore store, int chunkSize) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long valid = applyRecords(channel, store, chunkSize);
+            store.publish();
+            channel.truncate(valid);
+            channel.position(valid);
+            return new WriteAheadLog(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 로그 전체를 메모리에 올리지 않고, chunkSize 크기의 버퍼 하나를 재사용하며 앞에서부터 읽는다.
+     * 버퍼보다 큰 레코드를 만나면 그 레코드가 들어갈 만큼만 버퍼를 늘린다.
+     *
+     * @return 마지막으로 온전히 읽은 레코드가 끝나는 위치. 이 뒤로는 읽지 않았거나 망가진 바이트다.
+     */
+    private static long applyRecords(FileChannel channel, ProfileStore store, int chunkSize) throws IOException {
+        long size = channel.size();
+        Map<Integer, Question> questions = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize).flip();
+        long valid = 0;
+        while (true) {
+            int frameLength = FRAME_HEADER;
+            if (buffer.remaining() >= FRAME_HEADER) {
+                int length = buffer.getInt(buffer.position());
+                if (length <= 0 || length > MAX_RECORD_SIZE || length > size - valid - FRAME_HEADER) {
+                    return valid;
+                }
+                frameLength += length;
+            }
+            if (buffer.remaining() < frameLength) {
+                if (valid + buffer.remaining() >= size) {
+                    return valid;
+                }
+                buffer = refill(channel, buffer, valid + buffer.remaining(), frameLength);
+                continue;
+            }
+            int start = buffer.position();
+            ByteBuffer record = buffer.slice(start + FRAME_HEADER, frameLength - FRAME_HEADER);
+            if (checksumOf(record) != buffer.getInt(start + 4)) {
+                return valid;
+            }
+            apply(record, store, questions);
+            buffer.position(start + frameLength);
+            valid += frameLength;
+        }
+    }
+
+    /**
+     * 아직 읽지 않은 바이트를 버퍼 앞으로 옮기고, position 부터 버퍼가 찰 때까지 (또는 파일 끝까지) 읽어 채운다.
+     */
+    private static ByteBuffer refill(FileChannel channel, ByteBuffer buffer, long position, int needed)
+        throws IOException {
+        ByteBuffer target;
+        if (needed > buffer.capacity()) {
+            target = ByteBuffer.allocate(needed).put(buffer);
+        } else {
+            target = buffer.compact();
+        }
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        return target.flip();
+    }
+
+    private static void apply(ByteBuffer record, ProfileStore store, Map<Integer, Question> questions)
+        throws IOException {
+        byte type = record.get();
+        if (type == QUESTION) {
+            Question question = ProfileSnapshot.readQuestion(record);
+            questions.put(question.getId(), question);
+        } else if (type == ADD) {
+            Profile profile = new Profile(ProfileSnapshot.readString(record));
+            int answerCount = record.getInt();
+            for (int i = 0; i < answerCount; i++) {
+                profile.add(answerOf(question(record.getInt(), store, questions), record.getInt()));
+            }
+            store.put(profile);
+        } else if (type == UPDATE) {
+            String profileId = ProfileSnapshot.readString(record);
+            Answer answer = answerOf(question(record.getInt(), store, questions), record.getInt());
+            // 스냅샷이 이미 이후 삭제까지 반영하고 있을 수 있으므로, 없는 프로필의 변경은 건너뛴다.
+            if (store.contains(profileId)) {
+                store.set(profileId, answer);
+            }
+        } else if (type == REMOVE) {
+            store.delete(ProfileSnapshot.readString(record));
+        } else {
+            throw new IOException("알 수 없는 로그 레코드입니다: " + type);
+        }
+    }
+
+    /**
+     * 질문에 없는 선택지(-1 등)는 기록된 그대로 되살린다. 저장소는 이를 답하지 않은 것으로 본다.
+     */
+    private static Answer answerOf(Question question, int choice) {
+        if (choice >= 0 && choice < question.getAnswerChoiceCount()) {
+            return question.answer(choice);
+        }
+        return new Answer(question, choice);
+    }
+
+    private static Question question(int questionId, ProfileStore store, Map<Integer, Question> questions)
+        throws IOException {
+        Question question = questions.containsKey(questionId) ? questions.get(questionId) : store.question(questionId);
+        if (question == null) {
+            throw new IOException("로그에 정의되지 않은 질문입니다: " + questionId);
+        }
+        return question;
+    }
+
+    /**
+     * 질문이 이 로그에 처음 나오면 질문 정의 레코드를 먼저 기록한다.
+     * 질문에 없는 선택지의 답변은 저장소도 건너뛰므로 기록하지 않는다.
+     * 답변 변경은 그 답변을 지우는 변경이므로 선택지 번호를 그대로 기록한다.
+     *
+     * @return sync() 에 넘길 순번
+     */
+    synchronized long appendAdd(Profile profile) {
+        return appendAddAll(List.of(profile));
+    }
+
+    /**
+     * 배치의 레코드를 모두 만든 뒤에 한 번에 붙인다. 레코드 하나라도 만들지 못하면 아무것도 붙이지 않는다.
+     */
+    synchronized long appendAddAll(Collection<Profile> batch) {
+        Records records = new Records();
+        for (Profile profile : batch) {
+            List<Answer> answers = new ArrayList<>();
+            for (Answer answer : profile.getAnswers().values()) {
+                if (ProfileStore.isValidChoice(answer)) {
+                    answers.add(answer);
+                    records.addQuestion(answer.getCharacteristic());
+                }
+            }
+            records.add(out -> {
+                out.writeByte(ADD);
+                ProfileSnapshot.writeString(profile.getId(), out);
+                out.writeInt(answers.size());
+                for (Answer answer : answers) {
+                    out.writeInt(answer.getCharacteristic().getId());
+                    out.writeInt(answer.getChoice());
+                }
+            });
+        }
+        return records.commit();
+    }
+
+    synchronized long appendUpdate(String profileId, Answer answer) {
+        Records records = new Records();
+        records.addQuestion(answer.getCharacteristic());
+        records.add(out -> {
+            out.writeByte(UPDATE);
+            ProfileSnapshot.writeString(profileId, out);
+            out.writeInt(answer.getCharacteristic().getId());
+            out.writeInt(answer.getChoice());
+        });
+        return records.commit();
+    }
+
+    synchronized long appendRemove(String profileId) {
+        Records records = new Records();
+        records.add(out -> {
+            out.writeByte(REMOVE);
+            ProfileSnapshot.writeString(profileId, out);
+        });
+        return records.commit();
+    }
+
+    /**
+     * 한 번의 append 호출이 붙일 레코드를 모아 두었다가 commit() 할 때 pending 에 옮긴다.
+     * 로그의 락 안에서만 사용한다.
+     */
+    private final class Records {
+
+        private final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        private final Set<Integer> questions = new HashSet<>();
+        private int count;
+
+        void addQuestion(Question question) {
+            if (!loggedQuestions.contains(question.getId()) && questions.add(question.getId())) {
+                add(out -> {
+                    out.writeByte(QUESTION);
+                    ProfileSnapshot.writeQuestion(question, out);
+                });
+            }
+        }
+
+        void add(RecordWriter writer) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                writer.write(new DataOutputStream(bytes));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            byte[] record = bytes.toByteArray();
+            if (record.length > MAX_RECORD_SIZE) {
+                throw new IllegalArgumentException("로그 레코드가 너무 큽니다: " + record.length + " 바이트");
+            }
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER)
+                .putInt(record.length)
+                .putInt(checksumOf(ByteBuffer.wrap(record)));
+            frames.write(frame.array(), 0, FRAME_HEADER);
+            frames.write(record, 0, record.length);
+            count++;
+        }
+
+        long commit() {
+            byte[] bytes = frames.toByteArray();
+            pending.write(bytes, 0, bytes.length);
+            loggedQuestions.addAll(questions);
+            appended += count;
+            return appended;
+        }
+    }
+
+    /**
+     * 앞선 force() 가 실패했다면 IllegalStateException 을 던진다.
+     * 실패한 뒤의 변경은 디스크에 남지 않으므로, 호출하는 쪽은 메모리를 고치기 전에 확인한다.
+     */
+    synchronized void checkHealthy() {
+        if (!isHealthy()) {
+            throw new IllegalStateException("로그를 기록하지 못했습니다.", failure);
+        }
+    }
+
+    synchronized boolean isHealthy() {
+        return failure == null;
+    }
+
+    /**
+     * sequence 번 레코드까지 디스크에 기록될 때까지 기다린다.
+     * 다른 스레드가 force() 중이면 기다렸다가, 그 사이 쌓인 레코드를 모아 한 번에 기록한다.
+     */
+    void sync(long sequence) {
+        byte[] batch;
+        long batchEnd;
+        synchronized (this) {
+            while (true) {
+                if (failure != null) {
+                    throw new IllegalStateException("로그를 기록하지 못했습니다.", failure);
+                }
+                if (durable >= sequence) {
+                    return;
+                }
+                if (!flushing) {
+                    break;
+                }
+                waitForFlush();
+            }
+            flushing = true;
+            batch = pending.toByteArray();
+            batchEnd = appended;
+            pending = new ByteArrayOutputStream();
+        }
+        IOException error = null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            flushing = false;
+            if (error == null) {
+                durable = batchEnd;
+            } else {
+                failure = error;
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            throw new IllegalStateException("로그를 기록하지 못했습니다.", error);
+        }
+    }
+
+    private void waitForFlush() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("로그 기록을 기다리는 중 인터럽트 되었습니다.", e);
+        }
+    }
+
+    /**
+     * 스냅샷을 새로 저장한 뒤 호출한다. 지금까지의 레코드를 모두 버리고 빈 로그부터 다시 시작한다.
+     * 호출하는 쪽은 그 사이에 append 가 일어나지 않도록 막아야 한다.
+     */
+    synchronized void truncate() throws IOException {
+        while (flushing) {
+            waitForFlush();
+        }
+        pending = new ByteArrayOutputStream();
+        durable = appended;
+        loggedQuestions.clear();
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    /**
+     * 남은 레코드를 기록한 뒤 닫는다. 이미 기록이 실패한 로그라면 남은 레코드는 버리고 닫기만 한다.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (isHealthy()) {
+                sync(appended());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    synchronized long appended() {
+        return appended;
+    }
+
+    private static int checksumOf(ByteBuffer bytes) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes.duplicate());
+        return (int) checksum.getValue();
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,62 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class BulkStatisticsTest {
+
+    @Test
+    void answersGeometricMeanWithoutOverflowingProduct() {
+        int[] numbers = new int[20];
+        Arrays.fill(numbers, 1_000);
+
+        assertEquals(1_000, BulkStatistics.geometricMean(numbers), 1e-9);
+        assertEquals(1_000, new Criteria().geometricMean(numbers), 1e-9);
+    }
+
+    @Test
+    void answersZeroOrNaNGeometricMeanForZeroOrNegativeNumbers() {
+        assertEquals(0.0, BulkStatistics.geometricMean(new int[] { 4, 0, 9 }));
+        assertTrue(Double.isNaN(BulkStatistics.geometricMean(new int[] { 4, -1, 9 })));
+    }
+
+    @Test
+    void answersHarmonicMean() {
+        assertEquals(2.0, BulkStatistics.harmonicMean(new double[] { 1, 2, 4, 4 }), 1e-12);
+    }
+
+    @Test
+    void compensatesRoundingErrorsAcrossParallelPartialSums() {
+        double[] numbers = new double[BulkStatistics.PARALLEL_THRESHOLD * 8];
+        for (int i = 0; i < numbers.length; i += 4) {
+            numbers[i] = 1e16;
+            numbers[i + 1] = 1.0;
+            numbers[i + 2] = -1e16;
+            numbers[i + 3] = 1.0;
+        }
+
+        assertEquals(0.5, BulkStatistics.arithmeticMean(numbers));
+    }
+
+    @Test
+    void answersArithmeticMeanOfLargeIntArrayExactly() {
+        int[] numbers = new int[BulkStatistics.PARALLEL_THRESHOLD * 10 + 3];
+        Arrays.fill(numbers, Integer.MAX_VALUE);
+
+        assertEquals(Integer.MAX_VALUE, BulkStatistics.arithmeticMean(numbers));
+    }
+
+    @Test
+    void answersMeanOfCriterionWeights() {
+        Criteria criteria = new Criteria();
+        BooleanQuestion question = new BooleanQuestion(1, "Got bonuses?");
+        criteria.add(new Criterion(new Answer(question, Bool.TRUE), Weight.Important));
+        criteria.add(new Criterion(new Answer(question, Bool.FALSE), Weight.WouldPrefer));
+
+        assertEquals(550, criteria.arithmeticMean());
+        assertEquals(0, new Criteria().arithmeticMean());
+    }
+}
@@ -0,0 +1,141 @@
+package me.june.iloveyouboss;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CollectingMatchListenerTest {
+
+    private BooleanQuestion question;
+    private BooleanQuestion bonusQuestion;
+    private Criteria criteria;
+    private ProfileMatcher matcher;
+    private CollectingMatchListener listener;
+
+    @BeforeEach
+    void setUp() {
+        question = new BooleanQuestion(1, "Relocation package?");
+        bonusQuestion = new BooleanQuestion(2, "Got bonuses?");
+        criteria = new Criteria();
+        criteria.add(new Criterion(new Answer(question, Bool.TRUE), Weight.MustMatch));
+        criteria.add(new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.Important));
+        matcher = new ProfileMatcher(4);
+        listener = new CollectingMatchListener();
+    }
+
+    @AfterEach
+    void tearDown() {
+        matcher.close();
+    }
+
+    @Test
+    void collectsMatchesFromAllThreadsSortedByScore() {
+        for (int i = 0; i < 3 * Segment.SIZE; i++) {
+            matcher.add(createProfile("p" + i, i % 2 == 0, i % 5 == 0));
+        }
+
+        matcher.findMatchProfiles(criteria, listener);
+
+        List<MatchSet> matches = listener.snapshot();
+        assertEquals(3 * Segment.SIZE / 2, matches.size());
+        for (int i = 1; i < matches.size(); i++) {
+            assertTrue(matches.get(i - 1).getScore() >= matches.get(i).getScore());
+        }
+    }
+
+    @Test
+    void drainsOnlyNewMatches() {
+        matcher.add(createProfile("first", true, false));
+        matcher.findMatchProfiles(criteria, listener);
+        List<String> drained = new ArrayList<>();
+        listener.drainTo(matchSet -> drained.add(matchSet.getProfileId()));
+
+        matcher.add(createProfile("second", true, true));
+        matcher.findMatchProfiles(criteria, listener);
+        int count = listener.drainTo(matchSet -> drained.add(matchSet.getProfileId()));
+
+        assertEquals(2, count);
+        assertThat(drained.stream().sorted().collect(Collectors.toList()),
+            equalTo(Arrays.asList("first", "first", "second")));
+    }
+
+    @Test
+    void releasesDrainedMatches() {
+        matcher.add(createProfile("first", true, false));
+        matcher.findMatchProfiles(criteria, listener);
+
+        listener.drainTo(matchSet -> { });
+
+        assertEquals(0, listener.size());
+        assertTrue(listener.snapshot().isEmpty());
+    }
+
+    @Test
+    void drainsOpenChunkBuffersAndForgetsFinishedOnes() {
+        matcher.add(createProfile("a", true, false));
+        matcher.add(createProfile("b", true, true));
+        List<MatchSet> matches = matcher.findMatches(criteria);
+        MatchSet first = matches.get(0);
+        MatchSet second = matches.get(1);
+        MatchListener chunk = listener.forChunk();
+        List<MatchSet> drained = new ArrayList<>();
+
+        chunk.foundMatch(null, first);
+        assertEquals(1, listener.size());
+        assertEquals(1, listener.drainTo(drained::add));
+
+        chunk.foundMatch(null, second);
+        listener.chunkFinished(chunk);
+        assertEquals(1, listener.drainTo(drained::add));
+
+        assertThat(drained, equalTo(Arrays.asList(first, second)));
+        assertEquals(0, listener.size());
+        assertEquals(0, listener.drainTo(drained::add));
+    }
+
+    @Test
+    void collectsDirectCallsFromSeveralThreads() throws Exception {
+        matcher.add(createProfile("a", true, false));
+        MatchSet match = matcher.findMatches(criteria).get(0);
+        int threads = 4;
+        int perThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        listener.foundMatch(null, match);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * perThread, listener.size());
+        assertEquals(threads * perThread, listener.drainTo(matchSet -> { }));
+    }
+
+    private Profile createProfile(String id, boolean relocation, boolean bonus) {
+        Profile profile = new Profile(id);
+        profile.add(new Answer(question, relocation ? Bool.TRUE : Bool.FALSE));
+        profile.add(new Answer(bonusQuestion, bonus ? Bool.TRUE : Bool.FALSE));
+        return profile;
+    }
+}
@@ -0,0 +1,50 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CriteriaFingerprintTest {
+
+    private BooleanQuestion bonusQuestion;
+    private PercentileQuestion salaryQuestion;
+
+    @BeforeEach
+    void setUp() {
+        bonusQuestion = new BooleanQuestion(1, "Got bonuses?");
+        salaryQuestion = new PercentileQuestion(2, "Salary?", new String[] { "0", "10", "20" });
+    }
+
+    private Criteria criteria(Criterion... criterions) {
+        Criteria criteria = new Criteria();
+        for (Criterion criterion : criterions) {
+            criteria.add(criterion);
+        }
+        return criteria;
+    }
+
+    @Test
+    void ignoresOrderOfCriteria() {
+        Criteria first = criteria(
+            new Criterion(bonusQuestion.answer(Bool.TRUE), Weight.MustMatch),
+            new Criterion(salaryQuestion.answer("10"), Weight.Important));
+        Criteria second = criteria(
+            new Criterion(new Answer(salaryQuestion, "10"), Weight.Important),
+            new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.MustMatch));
+
+        assertEquals(first.fingerprint(), second.fingerprint());
+        assertEquals(first.fingerprint().hashCode(), second.fingerprint().hashCode());
+    }
+
+    @Test
+    void distinguishesWeightsAndChoices() {
+        Criteria criteria = criteria(new Criterion(salaryQuestion.answer("10"), Weight.Important));
+
+        assertNotEquals(criteria.fingerprint(),
+            criteria(new Criterion(salaryQuestion.answer("10"), Weight.WouldPrefer)).fingerprint());
+        assertNotEquals(criteria.fingerprint(),
+            criteria(new Criterion(salaryQuestion.answer("20"), Weight.Important)).fingerprint());
+    }
+}
@@ -0,0 +1,73 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyRecorderTest {
+
+    @Test
+    void reportsPercentilesWithinBucketPrecision() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            recorder.record(nanos * 1_000);
+        }
+
+        LatencySnapshot snapshot = recorder.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertWithinOnePercent(50_000_000, snapshot.getP50());
+        assertWithinOnePercent(99_000_000, snapshot.getP99());
+        assertWithinOnePercent(100_000_000, snapshot.getMax());
+        assertEquals(50_000_500.0, snapshot.getMean());
+    }
+
+    @Test
+    void subtractsEarlierSnapshotToGetIntervalDistribution() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(10);
+        LatencySnapshot earlier = recorder.snapshot();
+        recorder.record(1_000_000);
+
+        LatencySnapshot interval = recorder.snapshot().minus(earlier);
+
+        assertEquals(1, interval.getCount());
+        assertWithinOnePercent(1_000_000, interval.getP50());
+    }
+
+    @Test
+    void mergesRecordsFromAllThreads() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        Thread[] threads = new Thread[LatencyRecorder.STRIPES + 1];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    recorder.record(1_000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencySnapshot snapshot = recorder.snapshot();
+
+        assertEquals(10_000L * threads.length, snapshot.getCount());
+        assertWithinOnePercent(1_000, snapshot.getP50());
+    }
+
+    @Test
+    void mapsEveryValueToBucketContainingIt() {
+        for (long value : new long[] { 0, 1, 127, 128, 129, 1_000_003, Long.MAX_VALUE }) {
+            int index = LatencyRecorder.indexOf(value);
+            assertTrue(index < LatencyRecorder.BUCKETS);
+            assertTrue(LatencyRecorder.highestValueOf(index) >= value);
+        }
+    }
+
+    private static void assertWithinOnePercent(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 100, expected + " 근처여야 하지만 " + actual);
+    }
+}
@@ -0,0 +1,68 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Collections;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MatchCacheTest {
+
+    private BooleanQuestion bonusQuestion;
+    private PercentileQuestion salaryQuestion;
+    private ProfileStore store;
+    private MatchCache cache;
+
+    @BeforeEach
+    void setUp() {
+        bonusQuestion = new BooleanQuestion(1, "Got bonuses?");
+        salaryQuestion = new PercentileQuestion(2, "Salary?", new String[] { "0", "10", "20" });
+        store = new ProfileStore();
+        cache = new MatchCache(100);
+    }
+
+    private CriteriaFingerprint key(Answer answer) {
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(answer, Weight.MustMatch));
+        return criteria.fingerprint();
+    }
+
+    private MatchCache.Entry entryFor(StoreVersion version) {
+        return new MatchCache.Entry(version, Collections.emptyList(), Collections.emptyList());
+    }
+
+    private StoreVersion nextVersion(String profileId) {
+        Profile profile = new Profile(profileId);
+        profile.add(bonusQuestion.answer(Bool.TRUE));
+        store.add(profile);
+        return store.current();
+    }
+
+    @Test
+    void dropsResultsOfSupersededVersions() {
+        CriteriaFingerprint bonus = key(bonusQuestion.answer(Bool.TRUE));
+        CriteriaFingerprint salary = key(salaryQuestion.answer("10"));
+        cache.put(bonus, entryFor(nextVersion("first")));
+        cache.put(salary, entryFor(nextVersion("second")));
+
+        cache.put(bonus, entryFor(nextVersion("third")));
+        cache.put(key(salaryQuestion.answer("20")), entryFor(nextVersion("fourth")));
+
+        assertEquals(MatchCache.RETAINED_VERSIONS, cache.retainedVersions());
+        assertNull(cache.get(salary));
+        assertNotNull(cache.get(bonus));
+    }
+
+    @Test
+    void keepsResultsOfRetainedVersions() {
+        StoreVersion version = nextVersion("first");
+        cache.put(key(bonusQuestion.answer(Bool.TRUE)), entryFor(version));
+        cache.put(key(salaryQuestion.answer("10")), entryFor(version));
+        cache.put(key(salaryQuestion.answer("20")), entryFor(nextVersion("second")));
+
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.retainedVersions());
+    }
+}
@@ -0,0 +1,155 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MatchPlanTest {
+
+    private BooleanQuestion bonusQuestion;
+    private PercentileQuestion salaryQuestion;
+    private Criteria criteria;
+    private Profile profile;
+
+    @BeforeEach
+    void setUp() {
+        bonusQuestion = new BooleanQuestion(1, "Got bonuses?");
+        salaryQuestion = new PercentileQuestion(2, "Salary?", new String[] { "low", "mid", "high" });
+        criteria = new Criteria();
+        profile = new Profile("Bull Hockey, Inc.");
+    }
+
+    @Test
+    void answersFalseWhenMustMatchCriterionNotMet() {
+        profile.add(new Answer(bonusQuestion, Bool.FALSE));
+        criteria.add(new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.MustMatch));
+
+        assertFalse(MatchPlan.compile(criteria).matches(profile));
+    }
+
+    @Test
+    void evaluateStopsAtFirstFailedMustMatchCriterion() {
+        profile.add(new Answer(bonusQuestion, Bool.FALSE));
+        profile.add(new Answer(salaryQuestion, "low"));
+        Criterion bonusCriterion = new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.MustMatch);
+        criteria.add(new Criterion(new Answer(salaryQuestion, "low"), Weight.Important));
+        criteria.add(bonusCriterion);
+        criteria.add(new Criterion(new Answer(salaryQuestion, "high"), Weight.MustMatch));
+
+        MatchResult result = MatchPlan.compile(criteria).evaluate(profile.getId(), profile);
+
+        assertFalse(result.isMatched());
+        assertSame(bonusCriterion, result.getFailedCriterion());
+    }
+
+    @Test
+    void checksMostSelectiveMustMatchCriterionFirstAfterObservingProfiles() {
+        BooleanQuestion relocationQuestion = new BooleanQuestion(3, "Relocation?");
+        ProfileStore store = new ProfileStore();
+        for (int i = 0; i < Segment.SIZE; i++) {
+            Profile company = new Profile("company-" + i);
+            company.add(new Answer(bonusQuestion, Bool.TRUE));
+            company.add(new Answer(relocationQuestion, i % 1000 == 0 ? Bool.TRUE : Bool.FALSE));
+            store.add(company);
+        }
+        criteria.add(new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.MustMatch));
+        criteria.add(new Criterion(new Answer(relocationQuestion, Bool.TRUE), Weight.MustMatch));
+        MatchPlan plan = MatchPlan.compile(criteria);
+
+        assertEquals(5, store.mustMatchCandidates(plan).length);
+        assertEquals(1, plan.mustMatchOrder()[0]);
+        assertEquals(5, store.mustMatchCandidates(plan).length);
+    }
+
+    @Test
+    void sharesObservedOrderWithPlansCompiledFromSameCriteria() {
+        BooleanQuestion remoteQuestion = new BooleanQuestion(4, "Remote?");
+        BooleanQuestion stockQuestion = new BooleanQuestion(5, "Stock options?");
+        ProfileStore store = new ProfileStore();
+        for (int i = 0; i < Segment.SIZE; i++) {
+            Profile company = new Profile("company-" + i);
+            company.add(new Answer(bonusQuestion, Bool.TRUE));
+            company.add(new Answer(remoteQuestion, Bool.TRUE));
+            company.add(new Answer(stockQuestion, i % 1000 == 0 ? Bool.TRUE : Bool.FALSE));
+            store.add(company);
+        }
+        Criterion bonus = new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.MustMatch);
+        Criterion remote = new Criterion(new Answer(remoteQuestion, Bool.TRUE), Weight.MustMatch);
+        Criterion stock = new Criterion(new Answer(stockQuestion, Bool.TRUE), Weight.MustMatch);
+        criteria.add(remote);
+        criteria.add(bonus);
+        criteria.add(stock);
+        MustMatchOrders orders = new MustMatchOrders();
+        store.mustMatchCandidates(MatchPlan.compile(criteria, orders));
+
+        Criteria rearranged = new Criteria();
+        rearranged.add(bonus);
+        rearranged.add(stock);
+        rearranged.add(remote);
+
+        assertEquals(2, MatchPlan.compile(criteria, orders).mustMatchOrder()[0]);
+        assertEquals(1, MatchPlan.compile(rearranged, orders).mustMatchOrder()[0]);
+        assertEquals(0, MatchPlan.compile(criteria, new MustMatchOrders()).mustMatchOrder()[0]);
+    }
+
+    @Test
+    void reportsFirstDeclaredFailedCriterionWhateverTheCheckOrder() {
+        BooleanQuestion relocationQuestion = new BooleanQuestion(3, "Relocation?");
+        ProfileStore store = new ProfileStore();
+        for (int i = 0; i < Segment.SIZE; i++) {
+            Profile company = new Profile("company-" + i);
+            company.add(new Answer(bonusQuestion, Bool.TRUE));
+            company.add(new Answer(relocationQuestion, i % 1000 == 0 ? Bool.TRUE : Bool.FALSE));
+            store.add(company);
+        }
+        Criterion bonus = new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.MustMatch);
+        criteria.add(bonus);
+        criteria.add(new Criterion(new Answer(relocationQuestion, Bool.TRUE), Weight.MustMatch));
+        MatchPlan plan = MatchPlan.compile(criteria);
+        store.mustMatchCandidates(plan);
+        profile.add(new Answer(bonusQuestion, Bool.FALSE));
+        profile.add(new Answer(relocationQuestion, Bool.FALSE));
+
+        assertEquals(1, plan.mustMatchOrder()[0]);
+        assertSame(bonus, plan.evaluate(profile.getId(), profile).getFailedCriterion());
+    }
+
+    @Test
+    void answersTrueForDontCareCriterionEvenWhenUnanswered() {
+        criteria.add(new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.DontCare));
+
+        assertTrue(MatchPlan.compile(criteria).matches(profile));
+    }
+
+    @Test
+    void usesQuestionMatchRuleForPercentileQuestions() {
+        profile.add(new Answer(salaryQuestion, "mid"));
+        criteria.add(new Criterion(new Answer(salaryQuestion, "high"), Weight.Important));
+        criteria.add(new Criterion(new Answer(salaryQuestion, "low"), Weight.WouldPrefer));
+
+        MatchPlan plan = MatchPlan.compile(criteria);
+
+        assertEquals(Weight.Important.getValue(), plan.score(profile));
+    }
+
+    @Test
+    void scoresSameAsCriterionMatches() {
+        profile.add(new Answer(bonusQuestion, Bool.TRUE));
+        profile.add(new Answer(salaryQuestion, "high"));
+        criteria.add(new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.VeryImportant));
+        criteria.add(new Criterion(new Answer(salaryQuestion, "high"), Weight.WouldPrefer));
+
+        long expected = 0;
+        for (Criterion criterion : criteria) {
+            if (criterion.matches(profile.getAnswers().get(criterion.getAnswer().getQuestionText()))) {
+                expected += criterion.getWeight().getValue();
+            }
+        }
+
+        assertEquals(expected, MatchPlan.compile(criteria).score(profile));
+    }
+}
@@ -0,0 +1,120 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProfileLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BooleanQuestion bonusQuestion;
+    private PercentileQuestion salaryQuestion;
+    private ProfileLoader loader;
+    private ProfileMatcher matcher;
+
+    @BeforeEach
+    void setUp() {
+        bonusQuestion = new BooleanQuestion(1, "Got bonuses?");
+        salaryQuestion = new PercentileQuestion(2, "Salary?", new String[] { "0", "10", "20", "30" });
+        loader = new ProfileLoader(Arrays.asList(bonusQuestion, salaryQuestion));
+        matcher = new ProfileMatcher(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        matcher.close();
+    }
+
+    @Test
+    void loadsProfilesAcrossSeveralBatches() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# id, question:choice");
+        for (int i = 0; i < ProfileLoader.BATCH_SIZE + 10; i++) {
+            lines.add(String.format("p%d,1:%s,2:%d", i, i % 2 == 0 ? "Yes" : "No", (i % 4) * 10));
+        }
+        Path file = Files.write(tempDir.resolve("profiles.csv"), lines, StandardCharsets.UTF_8);
+
+        int loaded = loader.load(file, matcher);
+
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(bonusQuestion.answer("Yes"), Weight.MustMatch));
+        assertEquals(ProfileLoader.BATCH_SIZE + 10, loaded);
+        assertEquals((ProfileLoader.BATCH_SIZE + 10) / 2, matcher.findMatches(criteria).size());
+    }
+
+    @Test
+    void publishesLoadedBatchesOnceWhenQueried() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < ProfileLoader.BATCH_SIZE + 10; i++) {
+            lines.add(String.format("p%d,1:Yes", i));
+        }
+        Path file = Files.write(tempDir.resolve("profiles.csv"), lines, StandardCharsets.UTF_8);
+        long before = matcher.currentVersion().number();
+
+        loader.load(file, matcher);
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(bonusQuestion.answer("Yes"), Weight.MustMatch));
+        int matches = matcher.findMatches(criteria).size();
+
+        assertEquals(ProfileLoader.BATCH_SIZE + 10, matches);
+        assertEquals(before + 1, matcher.currentVersion().number());
+    }
+
+    @Test
+    void parsesOnInjectedExecutor() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < ProfileLoader.BATCH_SIZE + 10; i++) {
+            lines.add(String.format("p%d,1:Yes", i));
+        }
+        Path file = Files.write(tempDir.resolve("profiles.csv"), lines, StandardCharsets.UTF_8);
+        AtomicInteger parsed = new AtomicInteger();
+        Executor parsers = task -> {
+            parsed.incrementAndGet();
+            task.run();
+        };
+
+        int loaded = new ProfileLoader(Arrays.asList(bonusQuestion, salaryQuestion), parsers).load(file, matcher);
+
+        assertEquals(ProfileLoader.BATCH_SIZE + 10, loaded);
+        assertEquals(ProfileLoader.BATCH_SIZE / ProfileLoader.PARSE_CHUNK_SIZE + 1, parsed.get());
+    }
+
+    @Test
+    void rejectsUnknownChoice() throws IOException {
+        Path file = Files.write(tempDir.resolve("profiles.csv"),
+            Arrays.asList("june,1:Yes", "ces518,2:100"), StandardCharsets.UTF_8);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> loader.load(file, matcher));
+
+        assertEquals("2 번째 줄: Salary? 에 없는 선택지입니다: 100", e.getMessage());
+    }
+
+    @Test
+    void loadsAnswersToQuestionsWithLargeIds() throws IOException {
+        BooleanQuestion largest = new BooleanQuestion(Integer.MAX_VALUE, "Largest?");
+        ProfileLoader sparseLoader = new ProfileLoader(Arrays.asList(bonusQuestion, largest));
+        Path file = Files.write(tempDir.resolve("profiles.csv"),
+            Arrays.asList("june,1:Yes," + Integer.MAX_VALUE + ":No"), StandardCharsets.UTF_8);
+
+        sparseLoader.load(file, matcher);
+
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(largest.answer("No"), Weight.MustMatch));
+        assertEquals(1, matcher.findMatches(criteria).size());
+    }
+}
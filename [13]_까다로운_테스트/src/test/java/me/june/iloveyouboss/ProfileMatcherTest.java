@@ -3,17 +3,26 @@ package me.june.iloveyouboss;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -26,6 +35,11 @@ class ProfileMatcherTest {
     private Profile nonMatchingProfile;
     private MatchListener listener;
 
+    @AfterEach
+    void tearDown() {
+        matcher.close();
+    }
+
     @BeforeEach
     void setUp() {
         question = new BooleanQuestion(1, "");
@@ -51,6 +65,28 @@ class ProfileMatcherTest {
                 (Arrays.asList(matchingProfile.getId(), nonMatchingProfile.getId()))));
     }
 
+    @Test
+    void collectsOnlyCandidatesMeetingMustMatchCriteria() {
+        matcher.add(matchingProfile);
+        matcher.add(nonMatchingProfile);
+
+        List<MatchSet> sets = matcher.collectCandidateMatchSets(criteria);
+
+        assertThat(sets.stream()
+                .map(MatchSet::getProfileId).collect(Collectors.toList()),
+            equalTo(Collections.singletonList(matchingProfile.getId())));
+    }
+
+    @Test
+    void acceptsProfileWithChoiceMissingFromQuestion() {
+        Profile profile = new Profile("unknown choice");
+        profile.add(new Answer(question, "maybe"));
+
+        matcher.add(profile);
+
+        assertTrue(matcher.findMatches(criteria).isEmpty());
+    }
+
     @Test
     void processNotifiesListenerOnMatch() {
         matcher.add(matchingProfile);
@@ -61,6 +97,24 @@ class ProfileMatcherTest {
         verify(listener).foundMatch(matchingProfile, matchSet);
     }
 
+    @Test
+    void topMatchesAnswersHighestScoresFirst() {
+        BooleanQuestion bonusQuestion = new BooleanQuestion(2, "Got bonuses?");
+        criteria.add(new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.Important));
+        Profile withBonus = createMatchingProfile("withBonus");
+        withBonus.add(new Answer(bonusQuestion, Bool.TRUE));
+        Profile withoutBonus = createMatchingProfile("withoutBonus");
+        withoutBonus.add(new Answer(bonusQuestion, Bool.FALSE));
+        matcher.add(withoutBonus);
+        matcher.add(withBonus);
+        matcher.add(nonMatchingProfile);
+
+        List<MatchSet> top = matcher.topMatches(criteria, 1);
+
+        assertThat(top.stream().map(MatchSet::getProfileId).collect(Collectors.toList()),
+            equalTo(Collections.singletonList(withBonus.getId())));
+    }
+
     /**
      * 스레드 로직 테스트
      */
@@ -74,15 +128,257 @@ class ProfileMatcherTest {
 
         matcher.findMatchingProfiles(criteria, listener, matchSets, processFunction);
 
-        while (!matcher.getExecutors().isTerminated()) {
-
-        }
         assertThat(
             processedSets,
             equalTo(matchSets.stream().map(MatchSet::getProfileId).collect(Collectors.toSet()))
         );
     }
 
+    /**
+     * 질의가 끝나도 스레드풀을 닫지 않으므로, 같은 matcher 로 여러 번 질의할 수 있다.
+     */
+    @Test
+    void servesSeveralQueriesWithSameMatcher() {
+        matcher.add(matchingProfile);
+        matcher.add(nonMatchingProfile);
+
+        matcher.findMatchProfiles(criteria, listener);
+        matcher.findMatchProfiles(criteria, listener);
+
+        verify(listener, times(2)).foundMatch(eq(matchingProfile), any(MatchSet.class));
+        assertFalse(matcher.getExecutors().isShutdown());
+    }
+
+    @Test
+    void deliversMatchesOnVirtualThreads() {
+        try (ProfileMatcher virtualMatcher = new ProfileMatcher(ExecutionMode.VIRTUAL_THREADS, 2)) {
+            virtualMatcher.add(matchingProfile);
+            virtualMatcher.add(nonMatchingProfile);
+
+            virtualMatcher.findMatchProfiles(criteria, listener);
+
+            verify(listener).foundMatch(eq(matchingProfile), any(MatchSet.class));
+        }
+    }
+
+    @Test
+    void runsAtMostConcurrencyBlockingListenersOnVirtualThreads() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try (ProfileMatcher virtualMatcher = new ProfileMatcher(ExecutionMode.VIRTUAL_THREADS, 2)) {
+            for (int i = 0; i < 4 * Segment.SIZE; i += Segment.SIZE / 2) {
+                virtualMatcher.add(createMatchingProfile("p" + i));
+                for (int filler = 1; filler < Segment.SIZE / 2; filler++) {
+                    virtualMatcher.add(createNonMatchingProfile("p" + i + "-" + filler));
+                }
+            }
+
+            virtualMatcher.findMatchProfiles(criteria, (profile, matchSet) -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+
+        assertTrue(maxRunning.get() <= 2, "동시에 실행된 listener 수: " + maxRunning.get());
+    }
+
+    @Test
+    void forkJoinModeAnswersMatchesInProfileIdOrder() {
+        try (ProfileMatcher forkJoinMatcher = new ProfileMatcher(ExecutionMode.FORK_JOIN, 4)) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 3 * Segment.SIZE; i++) {
+                Profile profile = i % 3 == 0 ? createNonMatchingProfile("p" + i) : createMatchingProfile("p" + i);
+                forkJoinMatcher.add(profile);
+                if (i % 3 != 0) {
+                    expected.add(profile.getId());
+                }
+            }
+            Collections.sort(expected);
+
+            List<MatchSet> matches = forkJoinMatcher.findMatches(criteria);
+
+            assertThat(matches.stream().map(MatchSet::getProfileId).collect(Collectors.toList()),
+                equalTo(expected));
+        }
+    }
+
+    @Test
+    void rejectsQueriesAfterClose() {
+        matcher.add(matchingProfile);
+        matcher.close();
+
+        assertThrows(IllegalStateException.class, () -> matcher.findMatches(criteria));
+        assertThrows(IllegalStateException.class, () -> matcher.findMatchProfiles(criteria, listener));
+    }
+
+    @Test
+    void rejectsForkJoinQueriesAfterClose() {
+        ProfileMatcher forkJoin = new ProfileMatcher(ExecutionMode.FORK_JOIN, 2);
+        forkJoin.add(matchingProfile);
+        forkJoin.close();
+
+        assertThrows(IllegalStateException.class, () -> forkJoin.findMatchProfiles(criteria, listener));
+    }
+
+    @Test
+    void notifiesStandingQueryWhenMatchingProfileIsAdded() {
+        matcher.register(criteria, listener);
+
+        matcher.add(nonMatchingProfile);
+        matcher.add(matchingProfile);
+
+        verify(listener).foundMatch(eq(matchingProfile), any(MatchSet.class));
+        verify(listener, never()).foundMatch(eq(nonMatchingProfile), any(MatchSet.class));
+    }
+
+    @Test
+    void notifiesStandingQueryWhenAnswerChangesToMatch() {
+        matcher.add(nonMatchingProfile);
+        matcher.register(criteria, listener);
+
+        matcher.update(nonMatchingProfile.getId(), matchingAnswer());
+
+        verify(listener).foundMatch(eq(nonMatchingProfile), any(MatchSet.class));
+    }
+
+    @Test
+    void stopsNotifyingUnregisteredStandingQuery() {
+        StandingQuery query = matcher.register(criteria, listener);
+        matcher.unregister(query);
+
+        matcher.add(matchingProfile);
+
+        verify(listener, never()).foundMatch(any(Profile.class), any(MatchSet.class));
+    }
+
+    @Test
+    void queriesSeeWholeBatchesWhileProfilesAreAdded() {
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                matcher.addAll(Arrays.asList(createMatchingProfile(i + "a"), createMatchingProfile(i + "b")));
+            }
+        });
+        writer.start();
+
+        while (writer.isAlive()) {
+            assertEquals(0, matcher.findMatches(criteria).size() % 2);
+        }
+        assertEquals(4000, matcher.findMatches(criteria).size());
+    }
+
+    @Test
+    void reusesCachedMatchesUntilStoreChanges() {
+        matcher.add(matchingProfile);
+        List<MatchSet> first = matcher.findMatches(criteria);
+
+        Criteria sameCriteria = new Criteria();
+        sameCriteria.add(new Criterion(matchingAnswer(), Weight.MustMatch));
+        assertSame(first, matcher.findMatches(sameCriteria));
+
+        matcher.add(createMatchingProfile("another"));
+        assertEquals(2, matcher.findMatches(criteria).size());
+    }
+
+    @Test
+    void evaluatesSeveralQueriesInOneScan() {
+        PercentileQuestion salaryQuestion = new PercentileQuestion(2, "Salary?", new String[] { "0", "10", "20" });
+        for (int i = 0; i < 100; i++) {
+            Profile profile = new Profile(String.valueOf(i));
+            profile.add(new Answer(question, i % 2));
+            profile.add(salaryQuestion.answer(i % 3));
+            matcher.add(profile);
+        }
+        Criteria salaryCriteria = new Criteria();
+        salaryCriteria.add(new Criterion(salaryQuestion.answer("10"), Weight.MustMatch));
+        Criteria noneCriteria = new Criteria();
+        noneCriteria.add(new Criterion(salaryQuestion.answer("20"), Weight.MustMatch));
+        noneCriteria.add(new Criterion(nonMatchingAnswer(), Weight.MustMatch));
+        List<CollectingMatchListener> listeners = Arrays.asList(
+            new CollectingMatchListener(), new CollectingMatchListener(), new CollectingMatchListener());
+
+        matcher.findMatchProfiles(Arrays.asList(criteria, salaryCriteria, noneCriteria), listeners);
+
+        assertEquals(matcher.findMatches(criteria).size(), listeners.get(0).size());
+        assertEquals(matcher.findMatches(salaryCriteria).size(), listeners.get(1).size());
+        assertEquals(matcher.findMatches(noneCriteria).size(), listeners.get(2).size());
+        assertEquals(50, listeners.get(0).size());
+    }
+
+    @Test
+    void recordsQueryMetricsAndExposesThemOverJmx() throws Exception {
+        matcher.add(matchingProfile);
+        matcher.add(nonMatchingProfile);
+        ObjectName name = matcher.metrics().register("recordsQueryMetrics");
+
+        matcher.findMatchProfiles(criteria, listener);
+
+        MetricsSnapshot snapshot = matcher.metrics().snapshot();
+        assertEquals(1, snapshot.getQueryLatency().getCount());
+        assertEquals(2, snapshot.getProfilesEvaluated());
+        assertEquals(1, snapshot.getMatches());
+        assertEquals(0.5, snapshot.getMatchRate());
+        assertEquals(1, snapshot.getListenerLatency().getCount());
+        assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ProfilesEvaluated"));
+        CompositeData latency = (CompositeData) ManagementFactory.getPlatformMBeanServer()
+            .getAttribute(name, "QueryLatency");
+        assertEquals(1L, latency.get("count"));
+
+        matcher.close();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    void recordsCachedResultsLikeEvaluatedOnes() {
+        matcher.add(matchingProfile);
+        matcher.add(nonMatchingProfile);
+
+        matcher.findMatches(criteria);
+        matcher.findMatches(criteria);
+
+        MetricsSnapshot snapshot = matcher.metrics().snapshot();
+        assertEquals(2, snapshot.getQueryLatency().getCount());
+        assertEquals(4, snapshot.getProfilesEvaluated());
+        assertEquals(2, snapshot.getMatches());
+    }
+
+    @Test
+    void deliversRowReadByQueryWhenIdIsAddedAgainDuringQuery() {
+        try (ProfileMatcher singleThreaded = new ProfileMatcher(1)) {
+            singleThreaded.add(createMatchingProfile("first"));
+            singleThreaded.add(createMatchingProfile("second"));
+            List<String> delivered = new ArrayList<>();
+
+            singleThreaded.findMatchProfiles(criteria, (profile, matchSet) -> {
+                if (delivered.isEmpty()) {
+                    singleThreaded.remove("second");
+                    singleThreaded.add(createNonMatchingProfile("other"));
+                    singleThreaded.add(createMatchingProfile("second"));
+                }
+                delivered.add(profile.getId());
+            });
+
+            assertThat(delivered, equalTo(Arrays.asList("first", "second")));
+        }
+    }
+
+    @Test
+    void publishesAddedProfilesOnceWhenQueried() {
+        long before = matcher.currentVersion().number();
+        for (int i = 0; i < 100; i++) {
+            matcher.add(createMatchingProfile("p" + i));
+        }
+        assertEquals(before, matcher.currentVersion().number());
+
+        assertEquals(100, matcher.findMatches(criteria).size());
+        assertEquals(before + 1, matcher.currentVersion().number());
+    }
+
     private List<MatchSet> createMatchSets(int count) {
         List<MatchSet> matchSets = new ArrayList<>();
         for (int i = 0; i < count; i++) {
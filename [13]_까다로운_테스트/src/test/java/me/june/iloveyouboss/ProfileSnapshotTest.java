@@ -0,0 +1,135 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProfileSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BooleanQuestion bonusQuestion;
+    private PercentileQuestion salaryQuestion;
+    private ProfileStore store;
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        bonusQuestion = new BooleanQuestion(1, "Got bonuses?");
+        salaryQuestion = new PercentileQuestion(2, "Salary?", new String[] { "0", "10", "20", "30", "40" });
+        store = new ProfileStore();
+        for (int i = 0; i < Segment.SIZE + 100; i++) {
+            Profile profile = new Profile("p" + i);
+            profile.add(bonusQuestion.answer(i % 2));
+            if (i % 3 != 0) {
+                profile.add(salaryQuestion.answer(i % 5));
+            }
+            store.add(profile);
+        }
+        file = tempDir.resolve("profiles.snapshot");
+    }
+
+    @Test
+    void restoresSameColumnsAndCandidates() throws IOException {
+        ProfileSnapshot.write(store, file);
+
+        ProfileStore restored = ProfileSnapshot.open(file);
+
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(bonusQuestion.answer(Bool.TRUE), Weight.MustMatch));
+        criteria.add(new Criterion(salaryQuestion.answer("30"), Weight.MustMatch));
+        MatchPlan plan = MatchPlan.compile(criteria);
+        assertEquals(store.size(), restored.size());
+        assertArrayEquals(store.mustMatchCandidates(plan), restored.mustMatchCandidates(plan));
+        assertEquals("Salary? 40", restored.profile("p4").getAnswers().get("Salary?").toString());
+        ProfileSnapshot.verify(file);
+    }
+
+    @Test
+    void mapsColumnDataInSeveralRegions() throws IOException {
+        ProfileSnapshot.write(store, file);
+
+        ProfileStore restored = ProfileSnapshot.open(file, true, 4096);
+
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(bonusQuestion.answer(Bool.FALSE), Weight.MustMatch));
+        criteria.add(new Criterion(salaryQuestion.answer("10"), Weight.MustMatch));
+        MatchPlan plan = MatchPlan.compile(criteria);
+        assertArrayEquals(store.mustMatchCandidates(plan), restored.mustMatchCandidates(plan));
+        assertEquals("Salary? 10", restored.profile("p" + (Segment.SIZE + 10)).getAnswers().get("Salary?").toString());
+    }
+
+    @Test
+    void copiesMappedColumnOnWriteWithoutTouchingFile() throws IOException {
+        ProfileSnapshot.write(store, file);
+        byte[] before = Files.readAllBytes(file);
+        ProfileStore restored = ProfileSnapshot.open(file);
+
+        restored.update("p1", salaryQuestion.answer("0"));
+        Profile added = new Profile("new");
+        added.add(bonusQuestion.answer(Bool.TRUE));
+        int ordinal = restored.add(added);
+
+        assertEquals(0, restored.choiceOf(restored.ordinalOf("p1"), salaryQuestion.getId()));
+        assertEquals(Bool.TRUE, restored.choiceOf(ordinal, bonusQuestion.getId()));
+        assertArrayEquals(before, Files.readAllBytes(file));
+    }
+
+    @Test
+    void rejectsCorruptedSnapshot() throws IOException {
+        ProfileSnapshot.write(store, file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0x7f }), channel.size() - 1);
+        }
+
+        assertThrows(IOException.class, () -> ProfileSnapshot.verify(file));
+        assertThrows(IOException.class, () -> ProfileSnapshot.open(file));
+        ProfileSnapshot.open(file, false);
+    }
+
+    @Test
+    void replacesSnapshotWithoutLeavingTemporaryFiles() throws IOException {
+        Files.write(tempDir.resolve("profiles.snapshot.tmp"), new byte[] { 1, 2, 3 });
+        ProfileSnapshot.write(store, file);
+        ProfileSnapshot.write(store, file);
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(Arrays.asList("profiles.snapshot", "profiles.snapshot.tmp"),
+                files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(tempDir.resolve("profiles.snapshot.tmp")));
+        ProfileSnapshot.open(file);
+    }
+
+    @Test
+    void restoresColumnsOfQuestionsWithSparseIds() throws IOException {
+        BooleanQuestion negative = new BooleanQuestion(-7, "Negative?");
+        BooleanQuestion largest = new BooleanQuestion(Integer.MAX_VALUE, "Largest?");
+        Profile profile = new Profile("sparse");
+        profile.add(new Answer(negative, Bool.TRUE));
+        profile.add(new Answer(largest, Bool.FALSE));
+        store.add(profile);
+        ProfileSnapshot.write(store, file);
+
+        ProfileStore restored = ProfileSnapshot.open(file);
+
+        int ordinal = restored.ordinalOf("sparse");
+        assertEquals(Bool.TRUE, restored.choiceOf(ordinal, negative.getId()));
+        assertEquals(Bool.FALSE, restored.choiceOf(ordinal, largest.getId()));
+        assertEquals("Largest?", restored.question(Integer.MAX_VALUE).getText());
+    }
+}
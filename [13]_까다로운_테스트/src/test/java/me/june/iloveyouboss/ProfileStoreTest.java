@@ -0,0 +1,147 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProfileStoreTest {
+
+    private BooleanQuestion bonusQuestion;
+    private PercentileQuestion salaryQuestion;
+    private ProfileStore store;
+
+    @BeforeEach
+    void setUp() {
+        bonusQuestion = new BooleanQuestion(1, "Got bonuses?");
+        salaryQuestion = new PercentileQuestion(2, "Salary?",
+            new String[] { "0", "10", "20", "30", "40", "50" });
+        store = new ProfileStore();
+    }
+
+    @Test
+    void storesChoicesInBitColumns() {
+        Profile profile = new Profile("june");
+        profile.add(new Answer(bonusQuestion, Bool.TRUE));
+        profile.add(new Answer(salaryQuestion, "50"));
+
+        int ordinal = store.add(profile);
+
+        assertEquals(Bool.TRUE, store.choiceOf(ordinal, bonusQuestion.getId()));
+        assertEquals(5, store.choiceOf(ordinal, salaryQuestion.getId()));
+    }
+
+    @Test
+    void answersUnansweredForMissingAnswers() {
+        Profile profile = new Profile("june");
+        profile.add(new Answer(bonusQuestion, Bool.FALSE));
+
+        int ordinal = store.add(profile);
+
+        assertEquals(Bool.FALSE, store.choiceOf(ordinal, bonusQuestion.getId()));
+        assertEquals(ChoiceLookup.UNANSWERED, store.choiceOf(ordinal, salaryQuestion.getId()));
+    }
+
+    @Test
+    void storesChoiceMissingFromQuestionAsUnanswered() {
+        Profile profile = new Profile("june");
+        profile.add(new Answer(salaryQuestion, "1000"));
+        profile.add(new Answer(bonusQuestion, Bool.TRUE));
+
+        int ordinal = store.add(profile);
+        store.update("june", new Answer(bonusQuestion, "maybe"));
+
+        assertEquals(ChoiceLookup.UNANSWERED, store.choiceOf(ordinal, salaryQuestion.getId()));
+        assertEquals(ChoiceLookup.UNANSWERED, store.choiceOf(ordinal, bonusQuestion.getId()));
+    }
+
+    @Test
+    void rebuildsProfileViewFromColumns() {
+        Profile profile = new Profile("june");
+        profile.add(new Answer(salaryQuestion, "30"));
+        store.add(profile);
+
+        Profile view = store.profile("june");
+
+        assertEquals(profile, view);
+        assertEquals("Salary? 30", view.getAnswers().get("Salary?").toString());
+        assertNull(view.getAnswers().get("Got bonuses?"));
+    }
+
+    @Test
+    void rebuildsViewsWithSharedAnswerInstances() {
+        Profile profile = new Profile("june");
+        profile.add(salaryQuestion.answer("30"));
+        store.add(profile);
+
+        Profile view = store.profile("june");
+
+        assertSame(salaryQuestion.answer("30"), view.getAnswers().get("Salary?"));
+    }
+
+    @Test
+    void replacesAnswersWhenSameProfileIsAddedAgain() {
+        Profile profile = new Profile("june");
+        profile.add(new Answer(bonusQuestion, Bool.TRUE));
+        store.add(profile);
+
+        Profile updated = new Profile("june");
+        updated.add(new Answer(salaryQuestion, "10"));
+        int ordinal = store.add(updated);
+
+        assertEquals(1, store.size());
+        assertEquals(ChoiceLookup.UNANSWERED, store.choiceOf(ordinal, bonusQuestion.getId()));
+        assertEquals(1, store.choiceOf(ordinal, salaryQuestion.getId()));
+    }
+
+    @Test
+    void publishedVersionIsNotChangedByLaterWrites() {
+        Profile profile = new Profile("june");
+        profile.add(new Answer(bonusQuestion, Bool.TRUE));
+        int ordinal = store.add(profile);
+        StoreVersion version = store.current();
+
+        store.update("june", new Answer(bonusQuestion, Bool.FALSE));
+        store.add(new Profile("ces518"));
+        store.remove("june");
+
+        assertEquals(Bool.TRUE, version.choiceOf(ordinal, bonusQuestion.getId()));
+        assertEquals(1, version.size());
+        assertEquals(-1, store.ordinalOf("june"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void spansMultipleSegments() {
+        for (int i = 0; i < Segment.SIZE + 10; i++) {
+            Profile profile = new Profile(String.valueOf(i));
+            profile.add(new Answer(bonusQuestion, i % 2));
+            store.add(profile);
+        }
+
+        assertEquals(2, store.segmentCount());
+        assertEquals(Bool.TRUE, store.choiceOf(store.ordinalOf("4097"), bonusQuestion.getId()));
+    }
+
+    @Test
+    void storesAnswersToQuestionsWithAnyId() {
+        BooleanQuestion negative = new BooleanQuestion(-7, "Negative?");
+        BooleanQuestion sparse = new BooleanQuestion(300_000_000, "Sparse?");
+        BooleanQuestion largest = new BooleanQuestion(Integer.MAX_VALUE, "Largest?");
+        Profile profile = new Profile("june");
+        profile.add(new Answer(negative, Bool.TRUE));
+        profile.add(new Answer(sparse, Bool.FALSE));
+        profile.add(new Answer(largest, Bool.TRUE));
+
+        int ordinal = store.add(profile);
+
+        assertEquals(Bool.FALSE, profile.choiceOf(sparse.getId()));
+        assertEquals(Bool.TRUE, store.choiceOf(ordinal, negative.getId()));
+        assertEquals(Bool.FALSE, store.choiceOf(ordinal, sparse.getId()));
+        assertEquals(Bool.TRUE, store.choiceOf(ordinal, largest.getId()));
+        assertSame(largest, store.question(Integer.MAX_VALUE));
+        assertEquals(3, store.profile("june").getAnswers().size());
+    }
+}
@@ -0,0 +1,120 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ScoreCollectionTest {
+
+    @Test
+    void answersArithmeticMeanWithoutOverflowingIntSum() {
+        ScoreCollection collection = new ScoreCollection();
+        collection.add(() -> Integer.MAX_VALUE);
+        collection.add(() -> Integer.MAX_VALUE);
+
+        assertEquals(Integer.MAX_VALUE, collection.arithmeticMean());
+    }
+
+    @Test
+    void throwsWhenMeanOfNoScoresRequested() {
+        assertThrows(ArithmeticException.class, () -> new ScoreCollection().arithmeticMean());
+    }
+
+    @Test
+    void answersVarianceMinAndMax() {
+        ScoreCollection collection = new ScoreCollection();
+        for (int score : new int[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+            collection.add(score);
+        }
+
+        assertEquals(5.0, collection.mean());
+        assertEquals(4.0, collection.variance());
+        assertEquals(2, collection.min());
+        assertEquals(9, collection.max());
+    }
+
+    @Test
+    void approximatesPercentilesOfMergedCollections() {
+        ScoreCollection low = new ScoreCollection();
+        ScoreCollection high = new ScoreCollection();
+        for (int score = 1; score <= 10_000; score++) {
+            (score <= 5_000 ? low : high).add(score * 100);
+        }
+
+        low.merge(high);
+
+        assertEquals(10_000, low.count());
+        assertEquals(1_000_000, low.max());
+        assertEquals(500_000, low.percentile(0.5), 500_000 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(990_000, low.percentile(0.99), 990_000 * QuantileSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    void countsEveryScoreAddedConcurrently() throws InterruptedException {
+        ScoreCollection collection = new ScoreCollection();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    collection.add(i % 2 == 0 ? -1 : 1);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(400_000, collection.count());
+        assertEquals(0.0, collection.mean());
+        assertEquals(1.0, collection.variance());
+        assertEquals(-1, collection.percentile(0.25));
+    }
+
+    @Test
+    void neverReportsNegativeVarianceWhileScoresAreAdded() throws InterruptedException {
+        ScoreCollection collection = new ScoreCollection();
+        collection.add(7);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (int thread = 0; thread < 2; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1_000_000; i++) {
+                    collection.add(7);
+                }
+            });
+        }
+        executor.shutdown();
+        for (int check = 0; check < 100_000 && !executor.isTerminated(); check++) {
+            double deviation = collection.standardDeviation();
+            assertTrue(deviation >= 0, "표준편차가 " + deviation);
+        }
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(0.0, collection.variance());
+    }
+
+    @Test
+    void neverReportsMinOrMaxOfNoScoresWhileScoresAreAdded() throws InterruptedException {
+        ScoreCollection collection = new ScoreCollection();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (int thread = 0; thread < 2; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    collection.add(7);
+                }
+            });
+        }
+        executor.shutdown();
+
+        for (int check = 0; check < 100_000 && !executor.isTerminated(); check++) {
+            if (collection.count() > 0) {
+                assertEquals(7, collection.min());
+                assertEquals(7, collection.max());
+            }
+        }
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+}
@@ -0,0 +1,62 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ScoringKernelTest {
+
+    private BooleanQuestion bonusQuestion;
+    private PercentileQuestion salaryQuestion;
+    private ProfileStore store;
+    private Criteria criteria;
+
+    @BeforeEach
+    void setUp() {
+        bonusQuestion = new BooleanQuestion(1, "Got bonuses?");
+        salaryQuestion = new PercentileQuestion(2, "Salary?", new String[] { "0", "10", "20", "30", "40" });
+        store = new ProfileStore();
+        Random random = new Random(13);
+        for (int i = 0; i < Segment.SIZE + 100; i++) {
+            Profile profile = new Profile(String.valueOf(i));
+            if (random.nextInt(4) > 0) {
+                profile.add(new Answer(bonusQuestion, random.nextInt(2)));
+            }
+            profile.add(new Answer(salaryQuestion, random.nextInt(5)));
+            store.add(profile);
+        }
+        criteria = new Criteria();
+        criteria.add(new Criterion(new Answer(bonusQuestion, Bool.TRUE), Weight.MustMatch));
+        criteria.add(new Criterion(new Answer(salaryQuestion, "20"), Weight.Important));
+        criteria.add(new Criterion(new Answer(salaryQuestion, "40"), Weight.DontCare));
+    }
+
+    @Test
+    void scalarKernelScoresSameAsMatchPlan() {
+        assertScoresSameAsMatchPlan(new ScoringKernel.ScalarScoringKernel());
+    }
+
+    @Test
+    void vectorKernelScoresSameAsMatchPlan() {
+        ScoringKernel kernel = ScoringKernel.create();
+        assertEquals("VectorScoringKernel", kernel.getClass().getSimpleName());
+
+        assertScoresSameAsMatchPlan(kernel);
+    }
+
+    private void assertScoresSameAsMatchPlan(ScoringKernel kernel) {
+        MatchPlan plan = MatchPlan.compile(criteria);
+        long[] scores = new long[store.segmentCount() << Segment.SHIFT];
+
+        for (int segment = 0; segment < store.segmentCount(); segment++) {
+            kernel.scoreSegment(plan, store.segment(segment), scores, segment << Segment.SHIFT);
+        }
+
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            assertEquals(plan.score(store.row(ordinal)), scores[ordinal]);
+        }
+    }
+}
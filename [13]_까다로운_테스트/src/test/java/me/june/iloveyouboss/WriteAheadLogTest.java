@@ -0,0 +1,225 @@
+package me.june.iloveyouboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BooleanQuestion bonusQuestion;
+    private PercentileQuestion salaryQuestion;
+    private Path snapshot;
+    private Path logFile;
+
+    @BeforeEach
+    void setUp() {
+        bonusQuestion = new BooleanQuestion(1, "Got bonuses?");
+        salaryQuestion = new PercentileQuestion(2, "Salary?", new String[] { "0", "10", "20" });
+        snapshot = tempDir.resolve("profiles.snapshot");
+        logFile = tempDir.resolve("profiles.log");
+    }
+
+    private Profile profile(String id, int bonus) {
+        Profile profile = new Profile(id);
+        profile.add(bonusQuestion.answer(bonus));
+        return profile;
+    }
+
+    @Test
+    void replaysAddsUpdatesAndRemovalsAfterRestart() throws IOException {
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            matcher.add(profile("june", Bool.TRUE));
+            matcher.add(profile("ces518", Bool.FALSE));
+            matcher.update("june", salaryQuestion.answer("20"));
+            matcher.remove("ces518");
+        }
+
+        try (ProfileMatcher restarted = new ProfileMatcher(2)) {
+            restarted.recover(snapshot, logFile);
+
+            Criteria criteria = new Criteria();
+            criteria.add(new Criterion(salaryQuestion.answer("20"), Weight.MustMatch));
+            List<MatchSet> matches = restarted.findMatches(criteria);
+            assertEquals(1, matches.size());
+            assertEquals("june", matches.get(0).getProfileId());
+        }
+    }
+
+    @Test
+    void replaysProfilesWithChoicesMissingFromQuestion() throws IOException {
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            Profile june = profile("june", Bool.TRUE);
+            june.add(new Answer(salaryQuestion, "999"));
+            matcher.add(june);
+            matcher.add(profile("ces518", Bool.TRUE));
+            matcher.update("ces518", salaryQuestion.answer("10"));
+            matcher.update("ces518", new Answer(salaryQuestion, "999"));
+        }
+
+        try (ProfileMatcher restarted = new ProfileMatcher(2)) {
+            restarted.recover(snapshot, logFile);
+
+            Criteria bonus = new Criteria();
+            bonus.add(new Criterion(bonusQuestion.answer(Bool.TRUE), Weight.MustMatch));
+            assertEquals(2, restarted.findMatches(bonus).size());
+            Criteria salary = new Criteria();
+            salary.add(new Criterion(salaryQuestion.answer("20"), Weight.MustMatch));
+            assertTrue(restarted.findMatches(salary).isEmpty());
+        }
+    }
+
+    @Test
+    void leavesStoreUnchangedWhenRecordCannotBeAppended() throws IOException {
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            Profile huge = new Profile(new String(new char[WriteAheadLog.MAX_RECORD_SIZE + 1]).replace('\0', 'x'));
+            huge.add(bonusQuestion.answer(Bool.TRUE));
+
+            assertThrows(IllegalArgumentException.class, () -> matcher.add(huge));
+
+            Criteria criteria = new Criteria();
+            criteria.add(new Criterion(bonusQuestion.answer(Bool.TRUE), Weight.MustMatch));
+            assertTrue(matcher.findMatches(criteria).isEmpty());
+        }
+    }
+
+    @Test
+    void replaysLogOnTopOfCheckpoint() throws IOException {
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            matcher.add(profile("june", Bool.TRUE));
+            matcher.checkpoint();
+            matcher.remove("june");
+            matcher.add(profile("ces518", Bool.TRUE));
+        }
+
+        ProfileStore store = ProfileSnapshot.open(snapshot);
+        try (WriteAheadLog log = WriteAheadLog.replay(logFile, store)) {
+            assertNull(store.profile("june"));
+            assertEquals(1, store.size());
+            assertEquals(Bool.TRUE, store.choiceOf(store.ordinalOf("ces518"), bonusQuestion.getId()));
+        }
+    }
+
+    @Test
+    void queriesNeverWaitForTheLog() throws Exception {
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            matcher.add(profile("june", Bool.TRUE));
+            Criteria criteria = new Criteria();
+            criteria.add(new Criterion(bonusQuestion.answer(Bool.TRUE), Weight.MustMatch));
+
+            WriteAheadLog log = matcher.writeAheadLog();
+            synchronized (log) {
+                CompletableFuture<List<MatchSet>> query =
+                    CompletableFuture.supplyAsync(() -> matcher.findMatches(criteria));
+                assertEquals(1, query.get(10, TimeUnit.SECONDS).size());
+            }
+        }
+    }
+
+    @Test
+    void dropsTornRecordAtEndOfLog() throws IOException {
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            matcher.add(profile("june", Bool.TRUE));
+        }
+        long intact = Files.size(logFile);
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, 1, 2 }));
+        }
+
+        ProfileStore store = new ProfileStore();
+        try (WriteAheadLog log = WriteAheadLog.replay(logFile, store)) {
+            assertEquals(1, store.size());
+            assertEquals(intact, Files.size(logFile));
+        }
+    }
+
+    @Test
+    void replaysLogThroughBufferSmallerThanRecords() throws IOException {
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            for (int i = 0; i < 100; i++) {
+                matcher.add(profile("p" + i, i % 2));
+            }
+        }
+        long intact = Files.size(logFile);
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, 1, 2 }));
+        }
+
+        ProfileStore store = new ProfileStore();
+        try (WriteAheadLog log = WriteAheadLog.replay(logFile, store, 5)) {
+            assertEquals(100, store.size());
+            assertEquals(Bool.FALSE, store.choiceOf(store.ordinalOf("p98"), bonusQuestion.getId()));
+            assertEquals(intact, Files.size(logFile));
+        }
+    }
+
+    @Test
+    void rejectsChangesAfterLogFailsWithoutPublishingThem() throws IOException {
+        MatchListener listener = mock(MatchListener.class);
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            matcher.add(profile("june", Bool.TRUE));
+            Criteria criteria = new Criteria();
+            criteria.add(new Criterion(bonusQuestion.answer(Bool.TRUE), Weight.MustMatch));
+            matcher.register(criteria, listener);
+            assertEquals(1, matcher.findMatches(criteria).size());
+            matcher.writeAheadLog().close();
+
+            assertThrows(IllegalStateException.class, () -> matcher.add(profile("ces518", Bool.TRUE)));
+            assertThrows(IllegalStateException.class, () -> matcher.update("june", salaryQuestion.answer("10")));
+
+            assertEquals(1, matcher.currentVersion().size());
+            assertEquals(1, matcher.findMatches(criteria).size());
+            verify(listener, never()).foundMatch(any(Profile.class), any(MatchSet.class));
+        }
+    }
+
+    @Test
+    void keepsEveryRecordFromConcurrentWriters() throws IOException {
+        try (ProfileMatcher matcher = new ProfileMatcher(2)) {
+            matcher.recover(snapshot, logFile);
+            List<CompletableFuture<Void>> writers = new ArrayList<>();
+            IntStream.range(0, 8).forEach(w -> writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 50; i++) {
+                    matcher.add(profile(w + "-" + i, i % 2));
+                }
+            })));
+            writers.forEach(CompletableFuture::join);
+        }
+
+        ProfileStore store = new ProfileStore();
+        try (WriteAheadLog log = WriteAheadLog.replay(logFile, store)) {
+            assertEquals(400, store.size());
+            assertTrue(store.ordinalOf("7-49") >= 0);
+        }
+    }
+}
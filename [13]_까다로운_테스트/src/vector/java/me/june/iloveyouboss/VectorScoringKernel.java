@@ -0,0 +1,26 @@
+package me.june.iloveyouboss;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API 를 사용하는 ScoringKernel
+ * 64 비트 매칭 마스크를 레인 수만큼 잘라 VectorMask 로 만들고, 마스크가 켜진 레인에만 가중치를 더한다.
+ * ScoringKernel.create() 가 jdk.incubator.vector 모듈이 있을 때만 리플렉션으로 불러온다.
+ */
+class VectorScoringKernel extends ScoringKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    void addWeight(long[] scores, int base, long mask, long weight) {
+        LongVector weights = LongVector.broadcast(SPECIES, weight);
+        for (int i = 0; i < 64; i += SPECIES.length()) {
+            VectorMask<Long> lanes = VectorMask.fromLong(SPECIES, mask >>> i);
+            LongVector.fromArray(SPECIES, scores, base + i)
+                .add(weights, lanes)
+                .intoArray(scores, base + i);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package me.june.iloveyouboss;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 고정된 도착률로 findMatchProfiles 질의를 보내는 개방 루프(open loop) 부하 테스트
+ * 질의 i 는 앞선 질의가 끝났는지와 상관없이 start + i / rate 시각에 시작되어야 한다.
+ * 지연 시간은 실제로 보낸 시각이 아니라 이 의도한 시각부터 잰다.
+ * 그래서 엔진이나 클라이언트 스레드가 밀려 늦게 보낸 질의도 밀린 시간만큼 지연으로 기록된다. (coordinated omission 보정)
+ * 폐쇄 루프처럼 응답을 기다렸다가 다음 질의를 보내면, 엔진이 멈춘 동안 보내지 못한 질의가 통계에서 빠진다.
+ * <p>
+ * interval 마다 그 구간에 끝난 질의의 p50 / p99 / p99.9 / max 를 출력하고, 마지막에 전체 분포를 출력한다.
+ * 실행: gradle ":[13]_까다로운_테스트_벤치마크:loadTest" --args="rate=200 duration=60"
+ */
+public class LoadDriver {
+
+    private final ProfileMatcher matcher;
+    private final List<Criteria> queries;
+    private final double ratePerSecond;
+    private final long durationNanos;
+    private final long intervalNanos;
+    private final int clients;
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final LongAdder failures = new LongAdder();
+
+    LoadDriver(ProfileMatcher matcher, List<Criteria> queries, double ratePerSecond, long durationNanos,
+        long intervalNanos, int clients) {
+        this.matcher = matcher;
+        this.queries = queries;
+        this.ratePerSecond = ratePerSecond;
+        this.durationNanos = durationNanos;
+        this.intervalNanos = intervalNanos;
+        this.clients = clients;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parse(args);
+        int profileCount = Integer.parseInt(options.getOrDefault("profiles", "1000000"));
+        int criteriaCount = Integer.parseInt(options.getOrDefault("criteria", "16"));
+        double mustMatchRatio = Double.parseDouble(options.getOrDefault("mustMatchRatio", "0.25"));
+        int queryCount = Integer.parseInt(options.getOrDefault("queries", "32"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "60")));
+        long interval = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("interval", "1")));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "64"));
+
+        ProfileGenerator generator = new ProfileGenerator(ProfileGenerator.SEED);
+        try (ProfileMatcher matcher = new ProfileMatcher()) {
+            generator.generate(profileCount, matcher::addAll);
+            List<Criteria> queries = new ArrayList<>(queryCount);
+            for (int i = 0; i < queryCount; i++) {
+                queries.add(generator.criteria(criteriaCount, mustMatchRatio, i));
+            }
+            System.out.printf("profiles=%d criteria=%d mustMatchRatio=%.2f rate=%.1f/s clients=%d%n",
+                profileCount, criteriaCount, mustMatchRatio, rate, clients);
+            new LoadDriver(matcher, queries, rate, duration, interval, clients).run(System.out);
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("key=value 형식이어야 합니다: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * duration 동안 질의를 보내고, 보낸 질의가 모두 끝날 때까지 기다린 뒤 전체 분포를 반환한다.
+     */
+    LatencySnapshot run(PrintStream out) throws InterruptedException {
+        ExecutorService clientPool = Executors.newFixedThreadPool(clients);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+        Interval report = new Interval(out, start);
+        reporter.scheduleAtFixedRate(report::print, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        try {
+            double periodNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * periodNanos);
+                if (intended - start >= durationNanos) {
+                    break;
+                }
+                waitUntil(intended);
+                Criteria criteria = queries.get((int) (i % queries.size()));
+                clientPool.execute(() -> query(criteria, intended));
+            }
+            clientPool.shutdown();
+            clientPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            clientPool.shutdownNow();
+            reporter.shutdownNow();
+        }
+        report.print();
+        LatencySnapshot total = latencies.snapshot();
+        out.printf("total    %s failures=%d%n", format(total), failures.sum());
+        return total;
+    }
+
+    /**
+     * 클라이언트 스레드가 모두 바빠 큐에서 기다린 시간도 의도한 시각부터 재므로 지연에 포함된다.
+     */
+    private void query(Criteria criteria, long intended) {
+        try {
+            matcher.findMatchProfiles(criteria, (profile, matchSet) -> { });
+        } catch (RuntimeException e) {
+            failures.increment();
+        } finally {
+            latencies.record(System.nanoTime() - intended);
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static String format(LatencySnapshot snapshot) {
+        return String.format("count=%d p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+            snapshot.getCount(), millis(snapshot.getP50()), millis(snapshot.getP99()),
+            millis(snapshot.getP999()), millis(snapshot.getMax()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * 이전에 출력한 뒤로 끝난 질의만의 분포를 출력한다.
+     */
+    private class Interval {
+
+        private final PrintStream out;
+        private final long start;
+        private LatencySnapshot previous = latencies.snapshot();
+
+        Interval(PrintStream out, long start) {
+            this.out = out;
+            this.start = start;
+        }
+
+        synchronized void print() {
+            LatencySnapshot current = latencies.snapshot();
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            out.printf("%7.1fs %s%n", elapsed, format(current.minus(previous)));
+            previous = current;
+        }
+    }
+}
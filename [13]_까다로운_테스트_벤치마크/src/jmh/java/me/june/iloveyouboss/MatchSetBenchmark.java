@@ -0,0 +1,73 @@
+package me.june.iloveyouboss;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 프로필 하나에 대한 MatchSet.getScore() / MatchSet.matches() 의 처리량
+ * 호출할 때마다 다음 ordinal 의 프로필로 새 MatchSet 을 만들어, 점수 캐시가 아닌 실제 평가 비용을 잰다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MatchSetBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Profiles {
+
+        @Param({ "10000", "1000000", "10000000" })
+        int profileCount;
+
+        @Param({ "4", "16", "32" })
+        int criteriaCount;
+
+        @Param({ "0.0", "0.25", "1.0" })
+        double mustMatchRatio;
+
+        StoreVersion store;
+        MatchPlan plan;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            ProfileGenerator generator = new ProfileGenerator(ProfileGenerator.SEED);
+            ProfileStore profiles = new ProfileStore();
+            generator.generate(profileCount, profiles::addAll);
+            store = profiles.current();
+            plan = MatchPlan.compile(generator.criteria(criteriaCount, mustMatchRatio));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int ordinal;
+
+        int next(StoreVersion store) {
+            int current = ordinal;
+            ordinal = current + 1 == store.ordinalLimit() ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    @Benchmark
+    public long getScore(Profiles profiles, Cursor cursor) {
+        return matchSetOf(profiles, cursor.next(profiles.store)).getScore();
+    }
+
+    @Benchmark
+    public boolean matches(Profiles profiles, Cursor cursor) {
+        return matchSetOf(profiles, cursor.next(profiles.store)).matches();
+    }
+
+    private static MatchSet matchSetOf(Profiles profiles, int ordinal) {
+        StoreVersion store = profiles.store;
+        return new MatchSet(store.idOf(ordinal), profiles.plan, store.row(ordinal));
+    }
+}
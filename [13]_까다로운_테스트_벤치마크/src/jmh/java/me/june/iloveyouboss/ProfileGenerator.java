@@ -0,0 +1,108 @@
+package me.june.iloveyouboss;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * 벤치마크용 합성 프로필 / 조건 생성기
+ * 같은 seed 로 만들면 어느 커밋에서 돌려도 같은 질문, 같은 프로필, 같은 조건이 나오므로 결과를 서로 비교할 수 있다.
+ * 질문은 짝수 id 가 BooleanQuestion, 홀수 id 가 선택지 5 개짜리 PercentileQuestion 이다.
+ */
+class ProfileGenerator {
+
+    static final long SEED = 20_211_107L;
+    static final int QUESTION_COUNT = 64;
+    static final int BATCH_SIZE = 10_000;
+
+    private static final double ANSWER_RATE = 0.9;
+    private static final String[] PERCENTILES = { "0", "25", "50", "75", "100" };
+    private static final Weight[] OPTIONAL_WEIGHTS = {
+        Weight.VeryImportant, Weight.Important, Weight.WouldPrefer, Weight.DontCare
+    };
+
+    private final long seed;
+    private final Question[] questions = new Question[QUESTION_COUNT];
+
+    ProfileGenerator(long seed) {
+        this.seed = seed;
+        for (int id = 0; id < QUESTION_COUNT; id++) {
+            questions[id] = id % 2 == 0
+                ? new BooleanQuestion(id, "question " + id)
+                : new PercentileQuestion(id, "question " + id, PERCENTILES);
+        }
+    }
+
+    /**
+     * 프로필 count 개를 BATCH_SIZE 개씩 만들어 sink 로 넘긴다. 각 질문에 ANSWER_RATE 확률로 답한다.
+     */
+    void generate(int count, Consumer<List<Profile>> sink) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Profile> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            Profile profile = new Profile("profile-" + i);
+            for (Question question : questions) {
+                if (random.nextDouble() < ANSWER_RATE) {
+                    profile.add(question.answer(random.nextInt(question.getAnswerChoiceCount())));
+                }
+            }
+            batch.add(profile);
+            if (batch.size() == BATCH_SIZE) {
+                sink.accept(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+    }
+
+    /**
+     * 서로 다른 질문에 대한 조건 count 개 중 mustMatchRatio 비율만큼을 MustMatch 로 만든다.
+     * MustMatch 는 앞의 두 선택지 중 하나만 요구한다. PercentileQuestion 에서는 아래쪽 백분위라 대부분 통과하므로,
+     * 조건이 많아도 매칭이 남는다.
+     */
+    Criteria criteria(int count, double mustMatchRatio) {
+        return criteria(count, mustMatchRatio, 0);
+    }
+
+    /**
+     * 같은 조건 수와 MustMatch 비율로 서로 다른 조건 묶음이 필요할 때 variant 를 바꿔 만든다.
+     */
+    Criteria criteria(int count, double mustMatchRatio, int variant) {
+        if (count > QUESTION_COUNT) {
+            throw new IllegalArgumentException("조건 수는 질문 수(" + QUESTION_COUNT + ")를 넘을 수 없습니다: " + count);
+        }
+        SplittableRandom random = new SplittableRandom(
+            seed ^ ((variant * 31L + count) * 31L + Double.hashCode(mustMatchRatio)));
+        int[] order = shuffledQuestionIds(random);
+        int mustMatchCount = (int) Math.round(count * mustMatchRatio);
+        Criteria criteria = new Criteria();
+        for (int i = 0; i < count; i++) {
+            Question question = questions[order[i]];
+            if (i < mustMatchCount) {
+                criteria.add(new Criterion(question.answer(random.nextInt(2)), Weight.MustMatch));
+            } else {
+                int choice = random.nextInt(question.getAnswerChoiceCount());
+                Weight weight = OPTIONAL_WEIGHTS[random.nextInt(OPTIONAL_WEIGHTS.length)];
+                criteria.add(new Criterion(question.answer(choice), weight));
+            }
+        }
+        return criteria;
+    }
+
+    private static int[] shuffledQuestionIds(SplittableRandom random) {
+        int[] ids = new int[QUESTION_COUNT];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,56 @@
+package me.june.iloveyouboss;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * ProfileMatcher.findMatchProfiles 한 번으로 전체 프로필을 매칭하는 처리량 (질의 / 초)
+ * listener 는 매칭 수만 세므로, 측정값은 후보 추리기 / 평가 / Profile 뷰 생성 비용이다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ProfileMatcherBenchmark {
+
+    @Param({ "10000", "1000000", "10000000" })
+    int profileCount;
+
+    @Param({ "4", "16", "32" })
+    int criteriaCount;
+
+    @Param({ "0.0", "0.25", "1.0" })
+    double mustMatchRatio;
+
+    private ProfileMatcher matcher;
+    private Criteria criteria;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProfileGenerator generator = new ProfileGenerator(ProfileGenerator.SEED);
+        matcher = new ProfileMatcher(ExecutionMode.PLATFORM_POOL, Runtime.getRuntime().availableProcessors(), 0);
+        generator.generate(profileCount, matcher::addAll);
+        criteria = generator.criteria(criteriaCount, mustMatchRatio);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        matcher.close();
+    }
+
+    @Benchmark
+    public long findMatchProfiles() {
+        LongAdder matches = new LongAdder();
+        matcher.findMatchProfiles(criteria, (profile, matchSet) -> matches.increment());
+        return matches.sum();
+    }
+}